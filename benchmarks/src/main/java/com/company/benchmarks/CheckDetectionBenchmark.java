@@ -0,0 +1,46 @@
+package com.company.benchmarks;
+
+import com.company.boardgame.MoveList;
+import com.company.chess.rules.ChessMatch;
+import com.company.chess.rules.Color;
+import com.company.chess.rules.PieceType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// testCheck and testCheckmate are private, so the public queries they are built on are measured instead.
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CheckDetectionBenchmark {
+
+    @Param({"MIDDLEGAME", "CHECK", "CHECKMATE"})
+    private Positions position;
+
+    private ChessMatch match;
+    private int kingSquare;
+    private Color opponent;
+    private MoveList moves = new MoveList();
+
+    @Setup
+    public void setup() throws Exception {
+        match = ChessMatch.fromFen(position.getFen());
+        kingSquare = Long.numberOfTrailingZeros(match.getBitboard(PieceType.KING, match.getCurrentPlayer()));
+        opponent = match.getCurrentPlayer() == Color.WHITE ? Color.BLACK : Color.WHITE;
+    }
+
+    @Benchmark
+    public boolean testCheck() {
+        return match.isSquareAttacked(kingSquare, opponent);
+    }
+
+    @Benchmark
+    public boolean testCheckmate() throws Exception {
+        moves.clear();
+        match.generateLegalMoves(moves);
+        return moves.isEmpty();
+    }
+}
@@ -0,0 +1,49 @@
+package com.company.benchmarks;
+
+import com.company.chess.rules.ChessMatch;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+// Saving and restoring a whole match through its binary form, against rebuilding it from FEN.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatchEncodingBenchmark {
+
+    @Param({"OPENING", "MIDDLEGAME", "ENDGAME"})
+    private Positions position;
+
+    private ChessMatch match;
+    private ByteBuffer buffer;
+
+    @Setup
+    public void setup() throws Exception {
+        match = ChessMatch.fromFen(position.getFen());
+        buffer = ByteBuffer.allocate(match.getEncodedSize());
+    }
+
+    @Benchmark
+    public ByteBuffer writeTo() {
+        buffer.clear();
+        match.writeTo(buffer);
+        return buffer;
+    }
+
+    @Benchmark
+    public ChessMatch readFrom() throws Exception {
+        buffer.clear();
+        match.writeTo(buffer);
+        buffer.flip();
+        return ChessMatch.readFrom(buffer);
+    }
+
+    @Benchmark
+    public ChessMatch fromFen() throws Exception {
+        return ChessMatch.fromFen(position.getFen());
+    }
+}
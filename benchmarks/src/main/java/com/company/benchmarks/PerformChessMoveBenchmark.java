@@ -0,0 +1,61 @@
+package com.company.benchmarks;
+
+import com.company.chess.rules.ChessMatch;
+import com.company.chess.rules.ChessPiece;
+import com.company.chess.rules.ChessPosition;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PerformChessMoveBenchmark {
+
+    public enum Scenario {
+
+        OPENING_PAWN_PUSH(Positions.OPENING.getFen(), "e2", "e4"),
+        MIDDLEGAME_CAPTURE(Positions.MIDDLEGAME.getFen(), "e5", "f7"),
+        CASTLING(Positions.MIDDLEGAME.getFen(), "e1", "g1"),
+        CHECKMATE("r1bqkb1r/pppp1ppp/2n2n2/4p2Q/2B1P3/8/PPPP1PPP/RNB1K1NR w KQkq - 4 4", "h5", "f7");
+
+        private final String fen;
+        private final String source;
+        private final String target;
+
+        Scenario(String fen, String source, String target) {
+            this.fen = fen;
+            this.source = source;
+            this.target = target;
+        }
+    }
+
+    @Param
+    private Scenario scenario;
+
+    private ChessMatch template;
+    private ChessMatch match;
+    private ChessPosition source;
+    private ChessPosition target;
+
+    @Setup
+    public void setup() throws Exception {
+        template = ChessMatch.fromFen(scenario.fen);
+        source = new ChessPosition(scenario.source.charAt(0), scenario.source.charAt(1) - '0');
+        target = new ChessPosition(scenario.target.charAt(0), scenario.target.charAt(1) - '0');
+    }
+
+    // A move cannot be taken back through the public API, so every invocation starts from a fresh copy.
+    @Setup(Level.Invocation)
+    public void resetMatch() throws Exception {
+        match = template.copy();
+    }
+
+    @Benchmark
+    public ChessPiece performChessMove() throws Exception {
+        return match.performChessMove(source, target);
+    }
+}
@@ -0,0 +1,67 @@
+package com.company.benchmarks;
+
+import com.company.boardgame.MoveList;
+import com.company.chess.rules.ChessMatch;
+import com.company.chess.rules.ChessPiece;
+import com.company.chess.rules.PieceType;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PossibleMovesBenchmark {
+
+    @Param({"PAWN", "KNIGHT", "BISHOP", "ROOK", "QUEEN", "KING"})
+    private PieceType pieceType;
+
+    @Param({"MIDDLEGAME"})
+    private Positions position;
+
+    private ChessPiece[] pieces;
+    private MoveList moves = new MoveList();
+
+    @Setup
+    public void setup() throws Exception {
+        ChessMatch match = ChessMatch.fromFen(position.getFen());
+        List<ChessPiece> list = new ArrayList<>();
+        for (ChessPiece[] row : match.getPieces()) {
+            for (ChessPiece p : row) {
+                if (p != null && p.getType() == pieceType && p.getColor() == match.getCurrentPlayer()) {
+                    list.add(p);
+                }
+            }
+        }
+        pieces = list.toArray(new ChessPiece[0]);
+    }
+
+    @Benchmark
+    public void possibleMoves(Blackhole bh) throws Exception {
+        for (ChessPiece p : pieces) {
+            bh.consume(p.possibleMoves());
+        }
+    }
+
+    @Benchmark
+    public void moveMask(Blackhole bh) throws Exception {
+        for (ChessPiece p : pieces) {
+            bh.consume(p.moveMask());
+        }
+    }
+
+    @Benchmark
+    public int generateMoves() throws Exception {
+        moves.clear();
+        for (ChessPiece p : pieces) {
+            p.generateMoves(moves);
+        }
+        return moves.size();
+    }
+}
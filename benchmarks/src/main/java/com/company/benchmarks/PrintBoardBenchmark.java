@@ -0,0 +1,42 @@
+package com.company.benchmarks;
+
+import com.company.application.UI;
+import com.company.chess.rules.ChessMatch;
+import com.company.chess.rules.ChessPiece;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrintBoardBenchmark {
+
+    @Param({"OPENING", "ENDGAME"})
+    private Positions position;
+
+    private ChessPiece[][] pieces;
+    private PrintStream console;
+
+    @Setup
+    public void setup() throws Exception {
+        pieces = ChessMatch.fromFen(position.getFen()).getPieces();
+        console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(console);
+    }
+
+    @Benchmark
+    public void printBoard() {
+        UI.printBoard(pieces);
+    }
+}
@@ -0,0 +1,40 @@
+package com.company.benchmarks;
+
+import com.company.chess.engine.Search;
+import com.company.chess.engine.SearchResult;
+import com.company.chess.engine.TranspositionTable;
+import com.company.chess.rules.ChessMatch;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Time to move for a fixed-depth search; the table is cleared each time so every call does the full work.
+@State(Scope.Thread)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+    @Param({"OPENING", "MIDDLEGAME", "ENDGAME"})
+    private Positions position;
+
+    @Param({"5"})
+    private int depth;
+
+    private TranspositionTable table;
+    private Search search;
+
+    @Setup
+    public void setup() throws Exception {
+        table = new TranspositionTable(16);
+        search = new Search(ChessMatch.fromFen(position.getFen()), table);
+    }
+
+    @Benchmark
+    public SearchResult search() throws Exception {
+        table.clear();
+        return search.search(depth, 0, 0);
+    }
+}
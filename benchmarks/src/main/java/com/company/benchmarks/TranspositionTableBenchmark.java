@@ -0,0 +1,49 @@
+package com.company.benchmarks;
+
+import com.company.chess.engine.TranspositionTable;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Several threads hammer one shared table, the way parallel search threads would.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class TranspositionTableBenchmark {
+
+    @Param({"64"})
+    private int megabytes;
+
+    private TranspositionTable table;
+
+    @State(Scope.Thread)
+    public static class Keys {
+        private long key = System.nanoTime();
+
+        long next() {
+            key ^= key << 13;
+            key ^= key >>> 7;
+            key ^= key << 17;
+            return key;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        table = new TranspositionTable(megabytes);
+    }
+
+    @Benchmark
+    public void store(Keys keys) {
+        table.store(keys.next(), 0x0FFF, 25, 6, TranspositionTable.EXACT);
+    }
+
+    @Benchmark
+    public long probe(Keys keys) {
+        return table.probe(keys.next());
+    }
+}
@@ -0,0 +1,83 @@
+package com.company.application;
+
+import com.company.boardgame.BoardException;
+import com.company.boardgame.MoveList;
+import com.company.chess.archive.ArchiveReader;
+import com.company.chess.archive.PositionIndex;
+import com.company.chess.archive.PositionStats;
+import com.company.chess.engine.Perft;
+import com.company.chess.rules.ChessException;
+import com.company.chess.rules.ChessMatch;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+public class ExplorerProgram {
+
+    // Usage: ExplorerProgram [--rebuild] games.chs [FEN...]
+    // Builds games.chs.idx on first use (or with --rebuild), then prints the games through the position and the
+    // results after each legal move, like an opening explorer. Without a FEN the initial position is used.
+    public static void main(String[] args) throws IOException, BoardException, ChessException {
+        boolean rebuild = false;
+        String archive = null;
+        StringBuilder fen = new StringBuilder();
+        for (String arg : args) {
+            if (arg.equals("--rebuild")) {
+                rebuild = true;
+            } else if (archive == null) {
+                archive = arg;
+            } else {
+                fen.append(fen.length() == 0 ? "" : " ").append(arg);
+            }
+        }
+        if (archive == null) {
+            System.out.println("Usage: ExplorerProgram [--rebuild] games.chs [FEN...]");
+            return;
+        }
+        ChessMatch match = fen.length() > 0 ? ChessMatch.fromFen(fen.toString()) : new ChessMatch();
+
+        Path indexPath = Paths.get(archive + ".idx");
+        PositionIndex index;
+        if (rebuild || !Files.exists(indexPath)) {
+            long start = System.nanoTime();
+            try (ArchiveReader reader = new ArchiveReader(Paths.get(archive))) {
+                index = PositionIndex.build(reader, 0, indexPath, ForkJoinPool.commonPool());
+            }
+            System.out.printf("Indexed %d positions, %d postings in %d ms (%d bytes)%n", index.getPositionCount(),
+                    index.getPostingCount(), (System.nanoTime() - start) / 1_000_000, Files.size(indexPath));
+        } else {
+            index = PositionIndex.open(indexPath);
+        }
+
+        long start = System.nanoTime();
+        PositionStats stats = index.stats(match.getZobristKey());
+        MoveList moves = new MoveList();
+        match.generateLegalMoves(moves);
+        PositionStats[] children = new PositionStats[moves.size()];
+        for (int i = 0; i < moves.size(); i++) {
+            match.makeMove(moves.get(i));
+            children[i] = index.stats(match.getZobristKey());
+            match.undoMove();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        System.out.println("Position: " + stats);
+        Integer[] order = new Integer[moves.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> children[b].getGames() - children[a].getGames());
+        for (int i : order) {
+            if (children[i].getGames() > 0) {
+                System.out.printf("  %-6s %s%n", Perft.toUci(moves.get(i)), children[i]);
+            }
+        }
+        int[] games = index.games(match.getZobristKey());
+        System.out.println("First games: " + Arrays.toString(Arrays.copyOf(games, Math.min(10, games.length))));
+        System.out.printf("Query time: %.3f ms%n", elapsed / 1e6);
+    }
+}
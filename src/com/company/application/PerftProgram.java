@@ -0,0 +1,80 @@
+package com.company.application;
+
+import com.company.boardgame.BoardException;
+import com.company.chess.engine.Perft;
+import com.company.chess.engine.PerftPosition;
+import com.company.chess.rules.BitboardPosition;
+import com.company.chess.rules.ChessException;
+import com.company.chess.rules.ChessMatch;
+import com.company.chess.rules.CompactMatch;
+
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+public class PerftProgram {
+
+    // Usage: PerftProgram [depth] [--divide] [--parallel] [--compact] [FEN...]
+    // Without a FEN every reference position is checked against its known node count. --compact plays the moves
+    // on a CompactMatch instead of a ChessMatch.
+    public static void main(String[] args) throws BoardException, ChessException {
+        int depth = 4;
+        boolean divide = false;
+        boolean parallel = false;
+        boolean compact = false;
+        StringBuilder fen = new StringBuilder();
+        for (String arg : args) {
+            if (arg.equals("--divide")) {
+                divide = true;
+            } else if (arg.equals("--parallel")) {
+                parallel = true;
+            } else if (arg.equals("--compact")) {
+                compact = true;
+            } else if (fen.length() == 0 && arg.matches("\\d+")) {
+                depth = Integer.parseInt(arg);
+            } else {
+                fen.append(fen.length() == 0 ? "" : " ").append(arg);
+            }
+        }
+        ForkJoinPool pool = parallel ? ForkJoinPool.commonPool() : null;
+
+        if (fen.length() > 0) {
+            run(load(fen.toString(), compact), depth, divide, pool);
+            return;
+        }
+
+        boolean passed = true;
+        for (PerftPosition position : PerftPosition.values()) {
+            int d = Math.min(depth, position.getMaxDepth());
+            System.out.println(position + " depth " + d);
+            long nodes = run(load(position.getFen(), compact), d, divide, pool);
+            if (nodes != position.getNodes(d)) {
+                System.out.println("FAILED: expected " + position.getNodes(d));
+                passed = false;
+            }
+        }
+        System.out.println(passed ? "All reference positions match." : "Some reference positions do not match.");
+    }
+
+    private static BitboardPosition load(String fen, boolean compact) throws ChessException {
+        return compact ? CompactMatch.fromFen(fen) : ChessMatch.fromFen(fen);
+    }
+
+    private static long run(BitboardPosition match, int depth, boolean divide, ForkJoinPool pool) throws BoardException {
+        Perft perft = new Perft(match);
+        long start = System.nanoTime();
+        long nodes;
+        if (divide) {
+            Map<String, Long> moves = pool != null ? perft.parallelDivide(depth, pool) : perft.divide(depth);
+            nodes = 0;
+            for (Map.Entry<String, Long> e : moves.entrySet()) {
+                System.out.println(e.getKey() + ": " + e.getValue());
+                nodes += e.getValue();
+            }
+        } else {
+            nodes = pool != null ? perft.parallelPerft(depth, pool) : perft.perft(depth);
+        }
+        long elapsed = Math.max(1, System.nanoTime() - start);
+        System.out.println("Nodes: " + nodes + "  Time: " + elapsed / 1_000_000 + " ms  NPS: " + nodes * 1_000_000_000L / elapsed);
+        return nodes;
+    }
+}
@@ -0,0 +1,131 @@
+package com.company.application;
+
+import com.company.boardgame.BoardException;
+import com.company.boardgame.MoveList;
+import com.company.chess.archive.ArchiveWriter;
+import com.company.chess.pgn.GameResult;
+import com.company.chess.pgn.PgnGame;
+import com.company.chess.pgn.PgnReader;
+import com.company.chess.rules.ChessException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+public class PgnProgram {
+
+    // Usage: PgnProgram [--sequential] [--archive out.chs] file.pgn
+    // Replays every game, reports the ones with illegal moves and prints result counts and throughput.
+    // With --archive the valid games are also written to a binary game archive.
+    public static void main(String[] args) throws IOException {
+        boolean sequential = false;
+        String archive = null;
+        String file = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--sequential")) {
+                sequential = true;
+            } else if (args[i].equals("--archive")) {
+                archive = args[++i];
+            } else {
+                file = args[i];
+            }
+        }
+        if (file == null) {
+            System.out.println("Usage: PgnProgram [--sequential] [--archive out.chs] file.pgn");
+            return;
+        }
+        ArchiveWriter writer = archive == null ? null : new ArchiveWriter(Paths.get(archive));
+
+        AtomicLong plies = new AtomicLong();
+        AtomicLong invalid = new AtomicLong();
+        AtomicLongArray results = new AtomicLongArray(GameResult.values().length);
+        long start = System.nanoTime();
+        PgnReader reader = new PgnReader(Paths.get(file));
+        Consumer<PgnGame> handler = game -> {
+            plies.addAndGet(game.getMoves().size());
+            results.incrementAndGet(game.getResult().ordinal());
+            if (!game.isValid() && invalid.incrementAndGet() <= 10) {
+                System.out.println("Game at byte " + game.getOffset() + ": " + game.getError());
+            }
+        };
+        long games;
+        if (writer == null) {
+            games = sequential ? reader.replay(handler) : reader.parallelReplay(handler, ForkJoinPool.commonPool());
+        } else {
+            games = archive(reader, handler, writer, sequential ? null : ForkJoinPool.commonPool());
+        }
+        long elapsed = Math.max(1, System.nanoTime() - start);
+
+        System.out.println("Games: " + games + "  Invalid: " + invalid.get() + "  Plies: " + plies.get());
+        for (GameResult r : GameResult.values()) {
+            System.out.println(r.getPgn() + ": " + results.get(r.ordinal()));
+        }
+        System.out.println("Time: " + elapsed / 1_000_000 + " ms  Games/s: " + games * 1_000_000_000L / elapsed
+                + "  MB/s: " + reader.size() * 1000L / elapsed);
+        if (writer != null) {
+            writer.close();
+            long bytes = Files.size(Paths.get(archive));
+            System.out.printf("Archive: %d games, %d bytes, %.1f%% of the PGN%n", writer.getGameCount(), bytes, 100.0 * bytes / reader.size());
+        }
+    }
+
+    // The archive numbers games in the order they are written, so they must reach the writer in file order. Ranges
+    // still replay in parallel: each one keeps its valid games and the ranges are written one after the other.
+    private static long archive(PgnReader reader, Consumer<PgnGame> handler, ArchiveWriter writer, ForkJoinPool pool) throws IOException {
+        List<ForkJoinTask<List<PendingGame>>> tasks = new ArrayList<>();
+        for (int i = 0; i < reader.getRangeCount(); i++) {
+            int range = i;
+            Callable<List<PendingGame>> replay = () -> {
+                List<PendingGame> pending = new ArrayList<>();
+                reader.replay(range, game -> {
+                    handler.accept(game);
+                    pending.add(game.isValid() ? new PendingGame(game) : null);
+                });
+                return pending;
+            };
+            tasks.add(pool == null ? ForkJoinTask.adapt(replay) : pool.submit(replay));
+        }
+        long games = 0;
+        for (ForkJoinTask<List<PendingGame>> task : tasks) {
+            // Without a pool the range is replayed here, when its turn comes
+            List<PendingGame> pending = pool == null ? task.invoke() : task.join();
+            games += pending.size();
+            for (PendingGame game : pending) {
+                if (game == null) {
+                    continue;
+                }
+                try {
+                    writer.writeGame(game.startFen, game.moves, game.result);
+                } catch (BoardException | ChessException e) {
+                    throw new IllegalStateException(e.getMessage(), e);
+                }
+            }
+        }
+        return games;
+    }
+
+    // PgnGame is reused for the next game, so what the archive needs is copied out.
+    private static class PendingGame {
+
+        private final String startFen;
+        private final MoveList moves;
+        private final GameResult result;
+
+        PendingGame(PgnGame game) {
+            startFen = game.getTag("FEN");
+            moves = new MoveList(game.getMoves().size());
+            for (int i = 0; i < game.getMoves().size(); i++) {
+                moves.add(game.getMoves().get(i));
+            }
+            result = game.getResult();
+        }
+    }
+}
@@ -19,7 +19,7 @@ public class Program {
         ChessMatch match = new ChessMatch();
         List<ChessPiece> capturedPieces = new ArrayList<>();
 
-        while (!match.getCheckmate()) {
+        while (!match.getCheckmate() && !match.getStalemate()) {
             try {
                 UI.clearScreen();
                 UI.printMatch(match, capturedPieces);
@@ -0,0 +1,85 @@
+package com.company.application;
+
+import com.company.boardgame.BoardException;
+import com.company.chess.engine.ParallelSearch;
+import com.company.chess.engine.Perft;
+import com.company.chess.engine.Search;
+import com.company.chess.engine.SearchResult;
+import com.company.chess.engine.TranspositionTable;
+import com.company.chess.rules.ChessException;
+import com.company.chess.rules.ChessMatch;
+
+public class SearchProgram {
+
+    // Usage: SearchProgram [--depth d] [--time ms] [--nodes n] [--hash mb] [--threads t] [--scaling] [FEN...]
+    // Without a FEN the initial position is searched. --scaling times a fixed-depth search with 1, 2, 4... up to
+    // t threads and reports the speedup and efficiency of each against one thread.
+    public static void main(String[] args) throws BoardException, ChessException {
+        int depth = Search.MAX_PLY;
+        long time = 0;
+        long nodes = 0;
+        int hash = 64;
+        int threads = 1;
+        boolean scaling = false;
+        StringBuilder fen = new StringBuilder();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--depth":
+                    depth = Integer.parseInt(args[++i]);
+                    break;
+                case "--time":
+                    time = Long.parseLong(args[++i]);
+                    break;
+                case "--nodes":
+                    nodes = Long.parseLong(args[++i]);
+                    break;
+                case "--hash":
+                    hash = Integer.parseInt(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--scaling":
+                    scaling = true;
+                    break;
+                default:
+                    fen.append(fen.length() == 0 ? "" : " ").append(args[i]);
+            }
+        }
+        ChessMatch match = fen.length() > 0 ? ChessMatch.fromFen(fen.toString()) : new ChessMatch();
+
+        if (scaling) {
+            scaling(match, depth == Search.MAX_PLY ? 8 : depth, hash, threads);
+            return;
+        }
+        if (depth == Search.MAX_PLY && time == 0 && nodes == 0) {
+            time = 5000;
+        }
+        ParallelSearch search = new ParallelSearch(match, new TranspositionTable(hash), threads);
+        System.out.println(search.search(depth, time, nodes));
+        search.shutdown();
+    }
+
+    // Time to reach the same depth, each run starting from an empty table. A first untimed run warms up the JIT.
+    private static void scaling(ChessMatch match, int depth, int hash, int maxThreads) throws BoardException {
+        new Search(match, new TranspositionTable(hash)).search(depth, 0, 0);
+        long baseline = 0;
+        for (int threads = 1; ; threads = Math.min(threads * 2, maxThreads)) {
+            ParallelSearch search = new ParallelSearch(match, new TranspositionTable(hash), threads);
+            SearchResult result = search.search(depth, 0, 0);
+            search.shutdown();
+            long elapsed = Math.max(1, result.getElapsedMillis());
+            if (threads == 1) {
+                baseline = elapsed;
+            }
+            double speedup = (double) baseline / elapsed;
+            // Nodes over the one-thread count is the work the threads duplicate
+            System.out.printf("threads %2d  time %6d ms  nodes %10d  nps %9d  speedup %5.2f  efficiency %3.0f%%  %s%n",
+                    threads, elapsed, result.getNodes(), result.getNodesPerSecond(), speedup, 100 * speedup / threads,
+                    Perft.toUci(result.getMove()));
+            if (threads == maxThreads) {
+                break;
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.company.application;
+
+import com.company.chess.server.LoadGenerator;
+import com.company.chess.server.LoadResult;
+import com.company.chess.server.MatchServer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+public class ServerProgram {
+
+    // Usage: ServerProgram [--port p] [--journal dir] [--memory mb]
+    //        ServerProgram --load [--host h] [--port p] [--journal dir] [--memory mb] [--clients c] [--matches m] [--games g] [--plies n]
+    // The first form hosts matches on the port (8765 by default) until stopped; with --journal they are kept in
+    // dir and survive a crash, and with --memory the matches beyond mb megabytes are spilled to disk. With --load, random games are played against the server at host:port, or against
+    // a server started in this process when no port is given, and throughput and move latency are printed.
+    public static void main(String[] args) throws IOException {
+        boolean load = false;
+        String host = "localhost";
+        int port = -1;
+        Path journal = null;
+        long memory = Long.MAX_VALUE;
+        int clients = 16;
+        int matches = 64;
+        int games = 10000;
+        int plies = 200;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--load":
+                    load = true;
+                    break;
+                case "--host":
+                    host = args[++i];
+                    break;
+                case "--port":
+                    port = Integer.parseInt(args[++i]);
+                    break;
+                case "--journal":
+                    journal = Paths.get(args[++i]);
+                    break;
+                case "--memory":
+                    memory = Long.parseLong(args[++i]) << 20;
+                    break;
+                case "--clients":
+                    clients = Integer.parseInt(args[++i]);
+                    break;
+                case "--matches":
+                    matches = Integer.parseInt(args[++i]);
+                    break;
+                case "--games":
+                    games = Integer.parseInt(args[++i]);
+                    break;
+                case "--plies":
+                    plies = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    System.out.println("Usage: ServerProgram [--port p] [--journal dir] [--memory mb] | --load [--host h] [--port p] [--journal dir] [--memory mb] [--clients c] [--matches m] [--games g] [--plies n]");
+                    return;
+            }
+        }
+
+        if (!load) {
+            try (MatchServer server = new MatchServer(port < 0 ? 8765 : port, journal, memory)) {
+                System.out.println("Hosting matches on port " + server.getPort() + (journal == null ? "" : ", "
+                        + server.getMatchCount() + " recovered from " + journal));
+                server.serve();
+            }
+            return;
+        }
+
+        MatchServer server = null;
+        if (port < 0) {
+            server = new MatchServer(0, journal, memory);
+            server.start();
+            port = server.getPort();
+        }
+        try {
+            System.out.println(clients + " clients with " + matches + " matches each, " + clients * matches + " open at once");
+            LoadResult result = new LoadGenerator(host, port, clients, matches, plies).run(games);
+            System.out.println(result);
+        } finally {
+            if (server != null) {
+                System.out.println("Server moves: " + server.getMoveCount() + "  open matches: " + server.getMatchCount());
+                System.out.println("Match cache: " + server.getCache());
+                server.close();
+            }
+        }
+    }
+}
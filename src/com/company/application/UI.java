@@ -53,14 +53,16 @@ public class UI {
         System.out.println();
         System.out.println("Turn: " + chessMatch.getTurn());
 
-        if (!chessMatch.getCheckmate()) {
+        if (chessMatch.getStalemate()) {
+            System.out.println("Stalemate.");
+        } else if (!chessMatch.getCheckmate()) {
             System.out.println("Waiting player: " + chessMatch.getCurrentPlayer());
             if (chessMatch.getCheck()) {
                 System.out.println("CHECK.");
             }
         } else {
             System.out.println("Checkmate.");
-            System.out.println("Winner is " + chessMatch.getCurrentPlayer() + ".");
+            System.out.println("Winner is " + (chessMatch.getCurrentPlayer() == Color.WHITE ? Color.BLACK : Color.WHITE) + ".");
         }
     }
 
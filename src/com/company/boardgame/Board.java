@@ -4,7 +4,10 @@ public class Board {
 
 	private int rows;
 	private int columns;
-	private Piece[][] pieces;
+	private Piece[] pieces;
+	private long[] bitboards;
+	private long[] ownerBitboards;
+	private long occupied;
 
 	public Board(int rows, int columns) throws BoardException {
 		if (rows < 1 || columns < 1) {
@@ -12,7 +15,16 @@ public class Board {
 		}
 		this.rows = rows;
 		this.columns = columns;
-		pieces = new Piece[rows][columns];
+		pieces = new Piece[rows * columns];
+	}
+
+	public Board(int rows, int columns, int bitboardCount, int ownerCount) throws BoardException {
+		this(rows, columns);
+		if (rows != 8 || columns != 8) {
+			throw new BoardException("Bitboards are only available on an 8x8 Board.");
+		}
+		bitboards = new long[bitboardCount];
+		ownerBitboards = new long[ownerCount];
 	}
 
 	public int getRows() {
@@ -23,56 +35,138 @@ public class Board {
 		return columns;
 	}
 
+	// Bit (row * 8 + column) is set when the square holds a piece, so a8 is bit 0 and h1 is bit 63.
+	public long getOccupied() {
+		return occupied;
+	}
+
+	public long getBitboard(int index) {
+		return bitboards[index];
+	}
+
+	public long getOwnerBitboard(int owner) {
+		return ownerBitboards[owner];
+	}
+
+	public int square(Position position) {
+		return position.getRow() * columns + position.getColumn();
+	}
+
+	// Positions handed out for a square are interned, so asking for one does not allocate.
+	public Position position(int square) {
+		return Position.of(square / columns, square % columns);
+	}
+
+	public boolean squareExists(int square) {
+		return square >= 0 && square < pieces.length;
+	}
+
 	public Piece getPiece(int row, int column) throws BoardException {
 		if (!positionExists(row, column)) {
 			throw new BoardException("Position not on the Board.");
 		}
-		return pieces[row][column];
+		return pieces[row * columns + column];
 	}
 
 	public Piece getPiece(Position position) throws BoardException {
-		if (!positionExists(position)) {
+		return getPiece(position.getRow(), position.getColumn());
+	}
+
+	public Piece getPiece(int square) throws BoardException {
+		if (!squareExists(square)) {
 			throw new BoardException("Position not on the Board.");
 		}
-		return pieces[position.getRow()][position.getColumn()];
+		return pieceAt(square);
 	}
 
 	public void placePiece(Piece piece, Position position) throws BoardException {
-		if (thereIsAPiece(position)) {
-			throw new BoardException("There is already a piece in this position." + position);
+		if (!positionExists(position)) {
+			throw new BoardException("Position not on the Board.");
+		}
+		placePiece(piece, square(position));
+	}
+
+	public void placePiece(Piece piece, int square) throws BoardException {
+		if (thereIsAPiece(square)) {
+			throw new BoardException("There is already a piece in this position." + position(square));
 		}
-		pieces[position.getRow()][position.getColumn()] = piece;
-		piece.position = position;
+		put(piece, square);
 	}
 
 	public Piece removePiece(Position position) throws BoardException {
 		if (!positionExists(position)) {
 			throw new BoardException("Position is not on the Board.");
 		}
-		if (getPiece(position) == null) {
+		return removePiece(square(position));
+	}
+
+	public Piece removePiece(int square) throws BoardException {
+		if (!squareExists(square)) {
+			throw new BoardException("Position is not on the Board.");
+		}
+		return take(square);
+	}
+
+	// Unchecked access for callers that already know the square is on the board, such as move generation and
+	// making or undoing moves. Nothing is validated: put() expects an empty square.
+	public Piece pieceAt(int square) {
+		return pieces[square];
+	}
+
+	public boolean isOccupied(int square) {
+		return pieces[square] != null;
+	}
+
+	public void put(Piece piece, int square) {
+		pieces[square] = piece;
+		piece.position = position(square);
+		if (bitboards != null) {
+			toggleBitboards(piece, 1L << square);
+		}
+	}
+
+	public Piece take(int square) {
+		Piece aux = pieces[square];
+		if (aux == null) {
 			return null;
 		}
-		Piece aux = getPiece(position);
 		aux.position = null;
-		pieces[position.getRow()][position.getColumn()] = null;
+		pieces[square] = null;
+		if (bitboards != null) {
+			toggleBitboards(aux, 1L << square);
+		}
 		return aux;
 	}
 
-	public Boolean positionExists(int row, int column) {
-		if (row >= 0 && row < rows && column >= 0 && column < columns) {
-			return Boolean.TRUE;
-		} else {
-			return Boolean.FALSE;
+	private void toggleBitboards(Piece piece, long bit) {
+		occupied ^= bit;
+		if (piece.getBitboardIndex() >= 0) {
+			bitboards[piece.getBitboardIndex()] ^= bit;
+		}
+		if (piece.getOwnerIndex() >= 0) {
+			ownerBitboards[piece.getOwnerIndex()] ^= bit;
 		}
 	}
 
-	public Boolean positionExists(Position position) {
-		return positionExists(position.getRow(), position.getColumn());
+	public boolean positionExists(int row, int column) {
+		return row >= 0 && row < rows && column >= 0 && column < columns;
 	}
 
-	public Boolean thereIsAPiece(Position position) throws BoardException {
-		return getPiece(position) != null;
+	public boolean positionExists(Position position) {
+		return positionExists(position.getRow(), position.getColumn());
 	}
-}
 
+	public boolean thereIsAPiece(Position position) throws BoardException {
+		if (!positionExists(position)) {
+			throw new BoardException("Position not on the Board.");
+		}
+		return thereIsAPiece(square(position));
+	}
 
+	public boolean thereIsAPiece(int square) throws BoardException {
+		if (!squareExists(square)) {
+			throw new BoardException("Position not on the Board.");
+		}
+		return isOccupied(square);
+	}
+}
@@ -0,0 +1,69 @@
+package com.company.boardgame;
+
+import java.util.Arrays;
+
+public class MoveList {
+
+	private int[] moves;
+	private int size;
+
+	public MoveList() {
+		this(256);
+	}
+
+	public MoveList(int capacity) {
+		moves = new int[capacity];
+	}
+
+	// A move is packed as (flags << 12) | (to << 6) | from, where both squares come from Board.square().
+	public static int move(int from, int to) {
+		return to << 6 | from;
+	}
+
+	public static int move(int from, int to, int flags) {
+		return flags << 12 | to << 6 | from;
+	}
+
+	public static int from(int move) {
+		return move & 63;
+	}
+
+	public static int to(int move) {
+		return move >>> 6 & 63;
+	}
+
+	public static int flags(int move) {
+		return move >>> 12;
+	}
+
+	public void add(int move) {
+		if (size == moves.length) {
+			moves = Arrays.copyOf(moves, size * 2);
+		}
+		moves[size++] = move;
+	}
+
+	public int get(int index) {
+		return moves[index];
+	}
+
+	public void set(int index, int move) {
+		moves[index] = move;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public void sort() {
+		Arrays.sort(moves, 0, size);
+	}
+
+	public void clear() {
+		size = 0;
+	}
+}
@@ -14,12 +14,32 @@ public abstract class Piece {
 		return board;
 	}
 
+	public int getBitboardIndex() {
+		return -1;
+	}
+
+	public int getOwnerIndex() {
+		return -1;
+	}
+
 	public abstract boolean[][] possibleMoves() throws BoardException;
 
 	public boolean possibleMove(Position position) throws BoardException {
 		return possibleMoves()[position.getRow()][position.getColumn()];
 	}
 
+	public void generateMoves(MoveList moves) throws BoardException {
+		boolean[][] mat = possibleMoves();
+		int from = board.square(position);
+		for (int i = 0; i < mat.length; i++) {
+			for (int j = 0; j < mat[i].length; j++) {
+				if (mat[i][j]) {
+					moves.add(MoveList.move(from, i * board.getColumns() + j));
+				}
+			}
+		}
+	}
+
 	public boolean isThereAnyPossibleMove() throws BoardException {
 		boolean[][] mat = possibleMoves();
 		for (int i = 0; i < mat.length; i++) {
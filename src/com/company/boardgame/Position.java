@@ -1,42 +1,60 @@
 package com.company.boardgame;
 
+// Immutable, so the positions of boards up to 8x8 are interned and shared: Position.of() and Board.position()
+// never allocate for them.
 public class Position {
 
-    private int row;
-    private int column;
+    private static final Position[] INTERNED = new Position[64];
 
-    public Position() {
+    static {
+        for (int square = 0; square < INTERNED.length; square++) {
+            INTERNED[square] = new Position(square >>> 3, square & 7);
+        }
     }
 
+    private final int row;
+    private final int column;
+
     public Position(int row, int column) {
         this.row = row;
         this.column = column;
     }
 
-     public int getRow() {
-        return row;
+    public static Position of(int row, int column) {
+        if (row >= 0 && row < 8 && column >= 0 && column < 8) {
+            return INTERNED[row * 8 + column];
+        }
+        return new Position(row, column);
     }
 
-    public void setRow(int row) {
-        this.row = row;
+     public int getRow() {
+        return row;
     }
 
     public int getColumn() {
         return column;
     }
 
-    public void setColumn(int column) {
-        this.column = column;
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Position)) {
+            return false;
+        }
+        Position other = (Position) o;
+        return row == other.row && column == other.column;
     }
 
     @Override
-    public String toString() {
-        return " [ROW/COLUMN] = [" + row + "/" + column + "]";
+    public int hashCode() {
+        return 31 * row + column;
     }
 
-    public void setValues(int row, int column) {
-        this.row = row;
-        this.column = column;
+    @Override
+    public String toString() {
+        return " [ROW/COLUMN] = [" + row + "/" + column + "]";
     }
 
 
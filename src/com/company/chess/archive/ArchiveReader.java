@@ -0,0 +1,128 @@
+package com.company.chess.archive;
+
+import com.company.boardgame.BoardException;
+import com.company.boardgame.MoveList;
+import com.company.chess.pgn.GameResult;
+import com.company.chess.rules.ChessException;
+import com.company.chess.rules.ChessMatch;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.LongConsumer;
+
+// Random access to the games of an archive written by ArchiveWriter. Reads are positional, so one reader can
+// be shared by several threads.
+public class ArchiveReader implements Closeable {
+
+    private final Path path;
+    private final FileChannel channel;
+    private final long indexOffset;
+    private final int games;
+
+    public ArchiveReader(Path path) throws IOException {
+        this.path = path;
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < ArchiveWriter.HEADER_BYTES + ArchiveWriter.TRAILER_BYTES) {
+                throw new IOException("Not a game archive: " + path);
+            }
+            ByteBuffer header = read(0, ArchiveWriter.HEADER_BYTES);
+            if (header.getInt() != ArchiveWriter.MAGIC) {
+                throw new IOException("Not a game archive: " + path);
+            }
+            if (header.getInt() != ArchiveWriter.VERSION) {
+                throw new IOException("Unsupported game archive version: " + path);
+            }
+            ByteBuffer trailer = read(size - ArchiveWriter.TRAILER_BYTES, ArchiveWriter.TRAILER_BYTES);
+            indexOffset = trailer.getLong();
+            games = trailer.getInt();
+            if (trailer.getInt() != ArchiveWriter.MAGIC || indexOffset + 8L * games + ArchiveWriter.TRAILER_BYTES != size) {
+                throw new IOException("Game archive is truncated or was not closed: " + path);
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public int getGameCount() {
+        return games;
+    }
+
+    // Decodes a game by replaying it: each stored index picks a move from the sorted legal moves.
+    public ArchivedGame readGame(int index) throws IOException {
+        return readGame(index, null);
+    }
+
+    // Also hands the Zobrist key of every position of the game, start and final included, to the consumer.
+    ArchivedGame readGame(int index, LongConsumer positions) throws IOException {
+        if (index < 0 || index >= games) {
+            throw new IndexOutOfBoundsException("Game " + index + " is not in the archive.");
+        }
+        long offset = read(indexOffset + 8L * index, 8).getLong();
+        ByteBuffer header = read(offset, 8);
+        int payloadLength = header.getInt();
+        int plies = header.getShort() & 0xFFFF;
+        int result = header.get();
+        int flags = header.get();
+        offset += 8;
+        if (result < 0 || result >= GameResult.values().length) {
+            throw new IOException("Game " + index + " of " + path + " has no valid result.");
+        }
+
+        String startFen = null;
+        if ((flags & ArchiveWriter.CUSTOM_START) != 0) {
+            int length = read(offset, 2).getShort() & 0xFFFF;
+            startFen = StandardCharsets.US_ASCII.decode(read(offset + 2, length)).toString();
+            offset += 2 + length;
+        }
+        byte[] payload = new byte[payloadLength];
+        read(offset, payloadLength).get(payload);
+
+        try {
+            ChessMatch match = ChessMatch.fromFen(startFen == null ? ArchiveWriter.INITIAL_FEN : startFen);
+            MoveList moves = new MoveList(Math.max(plies, 1));
+            MoveIndexCoder coder = new MoveIndexCoder();
+            coder.wrap(payload);
+            for (int ply = 0; ply < plies; ply++) {
+                if (positions != null) {
+                    positions.accept(match.getZobristKey());
+                }
+                int move = coder.decode(match);
+                if (move < 0) {
+                    throw new IOException("Game " + index + " of " + path + " is corrupt at ply " + (ply + 1) + ".");
+                }
+                match.makeMove(move);
+                moves.add(move);
+            }
+            if (positions != null) {
+                positions.accept(match.getZobristKey());
+            }
+            return new ArchivedGame(index, startFen, moves, GameResult.fromOrdinal(result), match);
+        } catch (ChessException | BoardException e) {
+            throw new IOException("Game " + index + " of " + path + " is corrupt: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of " + path + ".");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
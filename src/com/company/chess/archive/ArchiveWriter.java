@@ -0,0 +1,127 @@
+package com.company.chess.archive;
+
+import com.company.boardgame.BoardException;
+import com.company.boardgame.MoveList;
+import com.company.chess.pgn.GameResult;
+import com.company.chess.rules.ChessException;
+import com.company.chess.rules.ChessMatch;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+// File layout: MAGIC, VERSION, then one block per game, then the offset of every block and a trailer with the
+// index offset, the game count and MAGIC again. A block is its payload length, ply count, result and flags,
+// the start FEN when it is not the initial position, and the move indexes packed by MoveIndexCoder.
+public class ArchiveWriter implements Closeable {
+
+    static final int MAGIC = 0x43485341;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 8;
+    static final int TRAILER_BYTES = 16;
+    static final int CUSTOM_START = 1;
+    static final String INITIAL_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    private final DataOutputStream out;
+    private final MoveIndexCoder coder = new MoveIndexCoder();
+    private long position;
+    private long[] offsets = new long[1024];
+    private int games;
+
+    private ChessMatch cursor;
+    private String startFen;
+    private int plies;
+
+    public ArchiveWriter(Path path) throws IOException {
+        out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        position = HEADER_BYTES;
+    }
+
+    // Starts recording from the match's current position. Feed it each move once with addMove(match.getLastMove()):
+    // after performChessMove, or, when the move promotes, after replacePromotedPiece.
+    public void beginGame(ChessMatch start) throws ChessException {
+        begin(start.toFen());
+    }
+
+    public void addMove(int move) throws BoardException {
+        if (cursor == null) {
+            throw new IllegalStateException("No game has been started.");
+        }
+        if (!coder.encode(cursor, move)) {
+            throw new IllegalArgumentException("Move is not legal in the recorded position.");
+        }
+        cursor.makeMove(move);
+        plies++;
+    }
+
+    public void endGame(GameResult result) throws IOException {
+        if (cursor == null) {
+            throw new IllegalStateException("No game has been started.");
+        }
+        if (plies > 0xFFFF) {
+            throw new IllegalStateException("A game cannot be longer than 65535 plies.");
+        }
+        if (games == offsets.length) {
+            offsets = Arrays.copyOf(offsets, games * 2);
+        }
+        offsets[games++] = position;
+
+        byte[] fen = startFen == null ? null : startFen.getBytes(StandardCharsets.US_ASCII);
+        out.writeInt(coder.getByteCount());
+        out.writeShort(plies);
+        out.writeByte(result.ordinal());
+        out.writeByte(fen == null ? 0 : CUSTOM_START);
+        position += 8;
+        if (fen != null) {
+            out.writeShort(fen.length);
+            out.write(fen);
+            position += 2 + fen.length;
+        }
+        out.write(coder.getBytes(), 0, coder.getByteCount());
+        position += coder.getByteCount();
+        cursor = null;
+    }
+
+    // For bulk conversion, e.g. from PgnReader; a null FEN means the initial position.
+    public synchronized void writeGame(String startFen, MoveList moves, GameResult result) throws IOException, ChessException, BoardException {
+        begin(startFen == null ? INITIAL_FEN : startFen);
+        for (int i = 0; i < moves.size(); i++) {
+            addMove(moves.get(i));
+        }
+        endGame(result);
+    }
+
+    public int getGameCount() {
+        return games;
+    }
+
+    @Override
+    public void close() throws IOException {
+        long indexOffset = position;
+        for (int i = 0; i < games; i++) {
+            out.writeLong(offsets[i]);
+        }
+        out.writeLong(indexOffset);
+        out.writeInt(games);
+        out.writeInt(MAGIC);
+        out.close();
+    }
+
+    private void begin(String fen) throws ChessException {
+        if (cursor != null) {
+            throw new IllegalStateException("The previous game has not been ended.");
+        }
+        // The reader rebuilds the start from FEN, so the writer does too; both then see the same legal moves.
+        cursor = ChessMatch.fromFen(fen);
+        startFen = fen.equals(INITIAL_FEN) ? null : fen;
+        plies = 0;
+        coder.reset();
+    }
+}
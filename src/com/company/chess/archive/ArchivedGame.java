@@ -0,0 +1,44 @@
+package com.company.chess.archive;
+
+import com.company.boardgame.MoveList;
+import com.company.chess.pgn.GameResult;
+import com.company.chess.rules.ChessMatch;
+
+public class ArchivedGame {
+
+    private final int index;
+    private final String startFen;
+    private final MoveList moves;
+    private final GameResult result;
+    private final ChessMatch match;
+
+    ArchivedGame(int index, String startFen, MoveList moves, GameResult result, ChessMatch match) {
+        this.index = index;
+        this.startFen = startFen;
+        this.moves = moves;
+        this.result = result;
+        this.match = match;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    // Null when the game starts from the initial position.
+    public String getStartFen() {
+        return startFen;
+    }
+
+    public MoveList getMoves() {
+        return moves;
+    }
+
+    public GameResult getResult() {
+        return result;
+    }
+
+    // The position after the last move.
+    public ChessMatch getMatch() {
+        return match;
+    }
+}
@@ -0,0 +1,89 @@
+package com.company.chess.archive;
+
+import com.company.boardgame.BoardException;
+import com.company.boardgame.MoveList;
+import com.company.chess.rules.ChessMatch;
+
+import java.util.Arrays;
+
+// A move is stored as its index in the sorted legal-move list of its position, written with just enough
+// bits to tell that many moves apart: a forced move takes no bits at all and no position needs more than 8.
+class MoveIndexCoder {
+
+    private final MoveList legal = new MoveList();
+    private byte[] bytes = new byte[256];
+    private int bitCount;
+    private int readBit;
+
+    void reset() {
+        bitCount = 0;
+    }
+
+    void wrap(byte[] bytes) {
+        this.bytes = bytes;
+        readBit = 0;
+    }
+
+    byte[] getBytes() {
+        return bytes;
+    }
+
+    int getByteCount() {
+        return (bitCount + 7) >>> 3;
+    }
+
+    // Returns false when the move is not legal in the match's position.
+    boolean encode(ChessMatch chessMatch, int move) throws BoardException {
+        sortedLegalMoves(chessMatch);
+        for (int i = 0; i < legal.size(); i++) {
+            if (legal.get(i) == move) {
+                writeBits(i, bits(legal.size()));
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Returns the move, or -1 when the stored index is past the end of the legal moves.
+    int decode(ChessMatch chessMatch) throws BoardException {
+        sortedLegalMoves(chessMatch);
+        int index = readBits(bits(legal.size()));
+        return index < legal.size() ? legal.get(index) : -1;
+    }
+
+    private void sortedLegalMoves(ChessMatch chessMatch) throws BoardException {
+        legal.clear();
+        chessMatch.generateLegalMoves(legal);
+        legal.sort();
+    }
+
+    private static int bits(int count) {
+        return count <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(count - 1);
+    }
+
+    private void writeBits(int value, int n) {
+        if (((bitCount + n + 7) >>> 3) > bytes.length) {
+            bytes = Arrays.copyOf(bytes, bytes.length * 2);
+        }
+        for (int i = n - 1; i >= 0; i--) {
+            if ((value >>> i & 1) != 0) {
+                bytes[bitCount >>> 3] |= (byte) (0x80 >>> (bitCount & 7));
+            } else {
+                bytes[bitCount >>> 3] &= (byte) ~(0x80 >>> (bitCount & 7));
+            }
+            bitCount++;
+        }
+    }
+
+    private int readBits(int n) {
+        int value = 0;
+        for (int i = 0; i < n; i++) {
+            if (readBit >>> 3 >= bytes.length) {
+                return Integer.MAX_VALUE;
+            }
+            value = value << 1 | (bytes[readBit >>> 3] >>> (7 - (readBit & 7)) & 1);
+            readBit++;
+        }
+        return value;
+    }
+}
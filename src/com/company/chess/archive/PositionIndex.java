@@ -0,0 +1,267 @@
+package com.company.chess.archive;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+// Maps the Zobrist key of every position reached in an archive to the games that reached it. File layout: the
+// postings (game id << 2 | result) of all keys back to back, then a key table of (key, first posting) sorted
+// by unsigned key, then a trailer with the position, posting and game counts, VERSION and MAGIC. Files are
+// memory-mapped and read-only, so an index can be queried from any number of threads; new games are added by
+// indexing them into a file of their own and merging it into the existing index.
+public class PositionIndex {
+
+    static final int MAGIC = 0x43485349;
+    static final int VERSION = 1;
+    static final int TRAILER_BYTES = 20;
+    static final int ENTRY_BYTES = 12;
+    static final int MAX_POSTINGS = Integer.MAX_VALUE / 4;
+    static final int MAX_POSITIONS = Integer.MAX_VALUE / ENTRY_BYTES;
+    static final int MAX_GAMES = 1 << 29;
+
+    private static final int BATCH_GAMES = 2048;
+
+    private final ByteBuffer postings;
+    private final ByteBuffer keys;
+    private final int positionCount;
+    private final int postingCount;
+    private final int games;
+
+    private PositionIndex(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer trailer = ByteBuffer.allocate(TRAILER_BYTES);
+            if (size < TRAILER_BYTES || channel.read(trailer, size - TRAILER_BYTES) != TRAILER_BYTES) {
+                throw new IOException("Not a position index: " + path);
+            }
+            trailer.flip();
+            positionCount = trailer.getInt();
+            postingCount = trailer.getInt();
+            games = trailer.getInt();
+            int version = trailer.getInt();
+            if (trailer.getInt() != MAGIC) {
+                throw new IOException("Not a position index: " + path);
+            }
+            if (version != VERSION) {
+                throw new IOException("Unsupported position index version: " + path);
+            }
+            long postingBytes = 4L * postingCount;
+            if (postingBytes + (long) ENTRY_BYTES * positionCount + TRAILER_BYTES != size) {
+                throw new IOException("Position index is truncated or was not closed: " + path);
+            }
+            postings = channel.map(FileChannel.MapMode.READ_ONLY, 0, postingBytes);
+            keys = channel.map(FileChannel.MapMode.READ_ONLY, postingBytes, (long) ENTRY_BYTES * positionCount);
+        }
+    }
+
+    public static PositionIndex open(Path path) throws IOException {
+        return new PositionIndex(path);
+    }
+
+    // Indexes every game of the archive into path, batches of games in parallel on the pool. Game ids are the
+    // archive indexes plus firstGame, so the games of a second archive can be given ids after the first's.
+    public static PositionIndex build(ArchiveReader archive, int firstGame, Path path, ForkJoinPool pool) throws IOException {
+        int count = archive.getGameCount();
+        if (firstGame < 0 || (long) firstGame + count > MAX_GAMES) {
+            throw new IllegalArgumentException("Game ids must be below " + MAX_GAMES + ".");
+        }
+        List<Path> runs = new ArrayList<>();
+        List<Future<Void>> tasks = new ArrayList<>();
+        try {
+            for (int from = 0; from < count; from += BATCH_GAMES) {
+                int first = from;
+                int last = Math.min(count, from + BATCH_GAMES);
+                Path run = path.resolveSibling(path.getFileName() + ".run" + runs.size());
+                runs.add(run);
+                tasks.add(pool.submit(() -> {
+                    PositionRun positions = new PositionRun();
+                    for (int i = first; i < last; i++) {
+                        positions.beginGame();
+                        ArchivedGame game = archive.readGame(i, positions);
+                        positions.endGame(firstGame + i, game.getResult().ordinal());
+                    }
+                    positions.write(run, firstGame + count);
+                    return null;
+                }));
+            }
+            for (Future<Void> task : tasks) {
+                join(task);
+            }
+            if (runs.isEmpty()) {
+                new PositionRun().write(path, firstGame);
+                return open(path);
+            }
+            return merge(runs, path);
+        } finally {
+            for (Future<Void> task : tasks) {
+                task.cancel(false);
+            }
+            for (Path run : runs) {
+                Files.deleteIfExists(run);
+            }
+        }
+    }
+
+    // Merges indexes into one file. A game listed in several inputs is listed once.
+    public static PositionIndex merge(List<Path> inputs, Path path) throws IOException {
+        for (Path input : inputs) {
+            if (Files.exists(path) && Files.isSameFile(input, path)) {
+                throw new IllegalArgumentException("Merge into a new file; the inputs are mapped while it is written.");
+            }
+        }
+        PriorityQueue<Cursor> queue = new PriorityQueue<>((a, b) -> Long.compareUnsigned(a.key(), b.key()));
+        int games = 0;
+        for (Path input : inputs) {
+            PositionIndex index = open(input);
+            games = Math.max(games, index.games);
+            if (index.positionCount > 0) {
+                queue.add(new Cursor(index));
+            }
+        }
+        int[] merged = new int[1024];
+        List<Cursor> current = new ArrayList<>();
+        try (PostingsWriter writer = new PostingsWriter(path, games)) {
+            while (!queue.isEmpty()) {
+                long key = queue.peek().key();
+                int size = 0;
+                while (!queue.isEmpty() && queue.peek().key() == key) {
+                    Cursor cursor = queue.poll();
+                    int from = cursor.index.start(cursor.position);
+                    int to = cursor.index.end(cursor.position);
+                    if (size + to - from > merged.length) {
+                        merged = Arrays.copyOf(merged, Math.max(merged.length * 2, size + to - from));
+                    }
+                    for (int i = from; i < to; i++) {
+                        merged[size++] = cursor.index.postings.getInt(4 * i);
+                    }
+                    current.add(cursor);
+                }
+                if (current.size() > 1) {
+                    Arrays.sort(merged, 0, size);
+                    int end = 1;
+                    for (int i = 1; i < size; i++) {
+                        if (merged[i] != merged[end - 1]) {
+                            merged[end++] = merged[i];
+                        }
+                    }
+                    size = end;
+                }
+                writer.add(key, merged, 0, size);
+                for (Cursor cursor : current) {
+                    if (++cursor.position < cursor.index.positionCount) {
+                        queue.add(cursor);
+                    }
+                }
+                current.clear();
+            }
+        }
+        return open(path);
+    }
+
+    public int getPositionCount() {
+        return positionCount;
+    }
+
+    public int getPostingCount() {
+        return postingCount;
+    }
+
+    // One past the highest game id the index can contain.
+    public int getGameCount() {
+        return games;
+    }
+
+    // Number of games that reached the position with this Zobrist key.
+    public int count(long key) {
+        int i = find(key);
+        return i < 0 ? 0 : end(i) - start(i);
+    }
+
+    // Ids of the games that reached the position, in ascending order.
+    public int[] games(long key) {
+        int i = find(key);
+        if (i < 0) {
+            return new int[0];
+        }
+        int from = start(i);
+        int[] ids = new int[end(i) - from];
+        for (int k = 0; k < ids.length; k++) {
+            ids[k] = postings.getInt(4 * (from + k)) >>> 2;
+        }
+        return ids;
+    }
+
+    public PositionStats stats(long key) {
+        PositionStats stats = new PositionStats();
+        int i = find(key);
+        if (i >= 0) {
+            for (int k = start(i), end = end(i); k < end; k++) {
+                stats.add(postings.getInt(4 * k) & 3);
+            }
+        }
+        return stats;
+    }
+
+    private int find(long key) {
+        int low = 0;
+        int high = positionCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = Long.compareUnsigned(keys.getLong(mid * ENTRY_BYTES), key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private int start(int i) {
+        return keys.getInt(i * ENTRY_BYTES + 8);
+    }
+
+    private int end(int i) {
+        return i + 1 < positionCount ? start(i + 1) : postingCount;
+    }
+
+    private static void join(Future<Void> task) throws IOException {
+        try {
+            task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Indexing interrupted.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private static class Cursor {
+
+        private final PositionIndex index;
+        private int position;
+
+        Cursor(PositionIndex index) {
+            this.index = index;
+        }
+
+        long key() {
+            return index.keys.getLong(position * ENTRY_BYTES);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.company.chess.archive;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+// The positions of a batch of games, collected in memory and written out as one sorted PositionIndex file.
+// A posting is the game id shifted left by two with the game's result in the low bits.
+class PositionRun implements LongConsumer {
+
+    private long[] keys = new long[1 << 16];
+    private int[] postings = new int[1 << 16];
+    private int size;
+    private int gameStart;
+
+    void beginGame() {
+        gameStart = size;
+    }
+
+    @Override
+    public void accept(long key) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            postings = Arrays.copyOf(postings, size * 2);
+        }
+        keys[size++] = key;
+    }
+
+    // A game that passes through a position more than once is listed under it once.
+    void endGame(int game, int result) {
+        Arrays.sort(keys, gameStart, size);
+        int end = gameStart;
+        for (int i = gameStart; i < size; i++) {
+            if (i == gameStart || keys[i] != keys[end - 1]) {
+                keys[end++] = keys[i];
+            }
+        }
+        size = end;
+        Arrays.fill(postings, gameStart, size, game << 2 | result);
+    }
+
+    void write(Path path, int games) throws IOException {
+        sort();
+        try (PostingsWriter writer = new PostingsWriter(path, games)) {
+            int start = 0;
+            for (int i = 1; i <= size; i++) {
+                if (i == size || keys[i] != keys[start]) {
+                    writer.add(keys[start], postings, start, i);
+                    start = i;
+                }
+            }
+        }
+    }
+
+    // Stable LSD radix sort on the unsigned key, 16 bits a pass, so games stay in the order they were added.
+    private void sort() {
+        long[] keyBuffer = new long[size];
+        int[] postingBuffer = new int[size];
+        int[] counts = new int[1 << 16];
+        for (int shift = 0; shift < 64; shift += 16) {
+            Arrays.fill(counts, 0);
+            for (int i = 0; i < size; i++) {
+                counts[(int) (keys[i] >>> shift) & 0xFFFF]++;
+            }
+            int sum = 0;
+            for (int d = 0; d < counts.length; d++) {
+                int count = counts[d];
+                counts[d] = sum;
+                sum += count;
+            }
+            for (int i = 0; i < size; i++) {
+                int to = counts[(int) (keys[i] >>> shift) & 0xFFFF]++;
+                keyBuffer[to] = keys[i];
+                postingBuffer[to] = postings[i];
+            }
+            long[] k = keys;
+            keys = keyBuffer;
+            keyBuffer = k;
+            int[] p = postings;
+            postings = postingBuffer;
+            postingBuffer = p;
+        }
+    }
+}
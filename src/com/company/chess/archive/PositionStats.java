@@ -0,0 +1,48 @@
+package com.company.chess.archive;
+
+import com.company.chess.pgn.GameResult;
+
+public class PositionStats {
+
+    private final int[] counts = new int[GameResult.values().length];
+
+    void add(int result) {
+        counts[result]++;
+    }
+
+    public int getGames() {
+        int games = 0;
+        for (int count : counts) {
+            games += count;
+        }
+        return games;
+    }
+
+    public int getCount(GameResult result) {
+        return counts[result.ordinal()];
+    }
+
+    public int getWhiteWins() {
+        return counts[GameResult.WHITE_WINS.ordinal()];
+    }
+
+    public int getDraws() {
+        return counts[GameResult.DRAW.ordinal()];
+    }
+
+    public int getBlackWins() {
+        return counts[GameResult.BLACK_WINS.ordinal()];
+    }
+
+    // White's score over the decided and drawn games, from 0 to 1; games without a result are left out.
+    public double getWhiteScore() {
+        int played = getWhiteWins() + getDraws() + getBlackWins();
+        return played == 0 ? 0.5 : (getWhiteWins() + 0.5 * getDraws()) / played;
+    }
+
+    @Override
+    public String toString() {
+        return getGames() + " games  +" + getWhiteWins() + " =" + getDraws() + " -" + getBlackWins()
+                + String.format("  (%.1f%%)", 100 * getWhiteScore());
+    }
+}
@@ -0,0 +1,61 @@
+package com.company.chess.archive;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Writes a PositionIndex file. Keys must come in ascending unsigned order, each with its postings in ascending
+// game order. Postings go straight to the file; the key table is spooled to a side file and appended at close.
+class PostingsWriter implements Closeable {
+
+    private final Path keysPath;
+    private final DataOutputStream out;
+    private final DataOutputStream keys;
+    private final int games;
+    private long positions;
+    private long postings;
+    private long lastKey;
+
+    PostingsWriter(Path path, int games) throws IOException {
+        this.games = games;
+        keysPath = path.resolveSibling(path.getFileName() + ".keys");
+        out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16));
+        keys = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(keysPath), 1 << 16));
+    }
+
+    void add(long key, int[] entries, int from, int to) throws IOException {
+        if (positions > 0 && Long.compareUnsigned(key, lastKey) <= 0) {
+            throw new IllegalArgumentException("Keys must be added in ascending order.");
+        }
+        if (positions + 1 > PositionIndex.MAX_POSITIONS || postings + to - from > PositionIndex.MAX_POSTINGS) {
+            throw new IOException("Position index is too large for one file; split the games into more indexes.");
+        }
+        keys.writeLong(key);
+        keys.writeInt((int) postings);
+        for (int i = from; i < to; i++) {
+            out.writeInt(entries[i]);
+        }
+        postings += to - from;
+        positions++;
+        lastKey = key;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            keys.close();
+            Files.copy(keysPath, out);
+            out.writeInt((int) positions);
+            out.writeInt((int) postings);
+            out.writeInt(games);
+            out.writeInt(PositionIndex.VERSION);
+            out.writeInt(PositionIndex.MAGIC);
+            out.close();
+        } finally {
+            Files.deleteIfExists(keysPath);
+        }
+    }
+}
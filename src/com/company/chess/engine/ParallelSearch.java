@@ -0,0 +1,98 @@
+package com.company.chess.engine;
+
+import com.company.boardgame.BoardException;
+import com.company.chess.rules.ChessMatch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Lazy SMP: every thread runs its own iterative deepening on a private copy of the match, and the threads
+// only meet in the shared transposition table, where each one picks up the others' results.
+public class ParallelSearch {
+
+    private final ChessMatch chessMatch;
+    private final TranspositionTable table;
+    private final int threads;
+    private final ExecutorService executor;
+
+    public ParallelSearch(ChessMatch chessMatch, TranspositionTable table, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be AT LEAST 1.");
+        }
+        this.chessMatch = chessMatch;
+        this.table = table;
+        this.threads = threads;
+        executor = threads == 1 ? null : Executors.newFixedThreadPool(threads - 1, r -> {
+            Thread t = new Thread(r, "search-helper");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    // The calling thread runs the main search; helpers are stopped as soon as it finishes. The node budget
+    // is split evenly between threads.
+    public SearchResult search(int maxDepth, long timeMillis, long maxNodes) throws BoardException {
+        long start = System.nanoTime();
+        long threadNodes = maxNodes == 0 ? 0 : Math.max(1, maxNodes / threads);
+        table.newSearch();
+
+        Search main = new Search(chessMatch, table);
+        int lastDepth = Math.min(maxDepth, Search.MAX_PLY);
+        List<Search> helpers = new ArrayList<>();
+        List<Future<SearchResult>> results = new ArrayList<>();
+        for (int i = 1; i < threads; i++) {
+            Search helper = new Search(chessMatch.copy(), table);
+            // Odd helpers skip depth 1, so the threads are spread across two depths at any moment.
+            int firstDepth = 1 + i % 2;
+            helpers.add(helper);
+            results.add(executor.submit(() -> {
+                SearchResult r = helper.iterate(maxDepth, timeMillis, threadNodes, firstDepth);
+                // Whatever the main thread is still on is shallower, so a helper through the last depth ends the search.
+                if (r.getDepth() >= lastDepth) {
+                    main.stop();
+                }
+                return r;
+            }));
+        }
+
+        SearchResult best = main.iterate(maxDepth, timeMillis, threadNodes, 1);
+        for (Search helper : helpers) {
+            helper.stop();
+        }
+
+        long nodes = best.getNodes();
+        for (Future<SearchResult> future : results) {
+            SearchResult r = join(future);
+            nodes += r.getNodes();
+            if (r.getDepth() > best.getDepth() && r.getMove() != 0) {
+                best = r;
+            }
+        }
+        return new SearchResult(best.getMove(), best.getScore(), best.getDepth(), nodes, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private static SearchResult join(Future<SearchResult> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Search interrupted.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.company.chess.engine;
+
+import com.company.boardgame.BoardException;
+import com.company.boardgame.MoveList;
+import com.company.chess.rules.BitboardPosition;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+public class Perft {
+
+    private static final String PROMOTIONS = " nbrq";
+
+    private final BitboardPosition position;
+    private MoveList[] moveLists = new MoveList[0];
+
+    public Perft(BitboardPosition position) {
+        this.position = position;
+    }
+
+    public long perft(int depth) throws BoardException {
+        ensureDepth(depth);
+        return count(depth, 0);
+    }
+
+    public Map<String, Long> divide(int depth) throws BoardException {
+        ensureDepth(depth);
+        Map<String, Long> result = new LinkedHashMap<>();
+        MoveList moves = new MoveList();
+        position.generateLegalMoves(moves);
+        for (int i = 0; i < moves.size(); i++) {
+            position.makeMove(moves.get(i));
+            result.put(toUci(moves.get(i)), depth <= 1 ? 1L : count(depth - 1, 1));
+            position.undoMove();
+        }
+        return result;
+    }
+
+    // Every root move is searched on its own copy of the position, so subtrees never share mutable state.
+    public Map<String, Long> parallelDivide(int depth, ForkJoinPool pool) throws BoardException {
+        ensureDepth(depth);
+        MoveList moves = new MoveList();
+        position.generateLegalMoves(moves);
+        List<RootTask> tasks = new ArrayList<>();
+        for (int i = 0; i < moves.size(); i++) {
+            tasks.add(new RootTask(position.copy(), moves.get(i), depth));
+        }
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (RootTask task : tasks) {
+            pool.execute(task);
+        }
+        for (RootTask task : tasks) {
+            result.put(toUci(task.move), task.join());
+        }
+        return result;
+    }
+
+    public long parallelPerft(int depth, ForkJoinPool pool) throws BoardException {
+        long nodes = 0;
+        for (long n : parallelDivide(depth, pool).values()) {
+            nodes += n;
+        }
+        return nodes;
+    }
+
+    private long count(int depth, int ply) throws BoardException {
+        MoveList moves = moveLists[ply];
+        moves.clear();
+        position.generateLegalMoves(moves);
+        if (depth == 1) {
+            return moves.size();
+        }
+        long nodes = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            position.makeMove(moves.get(i));
+            nodes += count(depth - 1, ply + 1);
+            position.undoMove();
+        }
+        return nodes;
+    }
+
+    private void ensureDepth(int depth) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("Perft depth must be AT LEAST 1.");
+        }
+        if (moveLists.length < depth) {
+            moveLists = new MoveList[depth];
+            for (int i = 0; i < depth; i++) {
+                moveLists[i] = new MoveList();
+            }
+        }
+    }
+
+    public static String toUci(int move) {
+        int from = MoveList.from(move);
+        int to = MoveList.to(move);
+        String s = "" + (char) ('a' + (from & 7)) + (8 - (from >>> 3)) + (char) ('a' + (to & 7)) + (8 - (to >>> 3));
+        return MoveList.flags(move) == 0 ? s : s + PROMOTIONS.charAt(MoveList.flags(move));
+    }
+
+    private static class RootTask extends RecursiveTask<Long> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final BitboardPosition position;
+        private final int move;
+        private final int depth;
+
+        RootTask(BitboardPosition position, int move, int depth) {
+            this.position = position;
+            this.move = move;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Long compute() {
+            try {
+                position.makeMove(move);
+                return depth <= 1 ? 1L : new Perft(position).perft(depth - 1);
+            } catch (BoardException e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,376 @@
+package com.company.chess.engine;
+
+import com.company.boardgame.BoardException;
+import com.company.boardgame.MoveList;
+import com.company.chess.rules.ChessMatch;
+import com.company.chess.rules.Color;
+import com.company.chess.rules.PieceType;
+
+import java.util.Arrays;
+
+public class Search {
+
+    public static final int INFINITE = 32000;
+    public static final int MATE = 31000;
+    public static final int MAX_PLY = 100;
+
+    private static final int ASPIRATION_WINDOW = 40;
+    private static final int TT_MOVE_SCORE = 1_000_000;
+    private static final int CAPTURE_SCORE = 100_000;
+    private static final int PROMOTION_SCORE = 90_000;
+    private static final int KILLER_SCORE = 80_000;
+    private static final int HISTORY_LIMIT = 50_000;
+
+    private final ChessMatch chessMatch;
+    private final TranspositionTable table;
+
+    private final MoveList[] moveLists = new MoveList[MAX_PLY + 1];
+    private final int[][] moveScores = new int[MAX_PLY + 1][256];
+    private final int[][] killers = new int[MAX_PLY + 1][2];
+    private final int[][] history = new int[64][64];
+    private final long[] keys = new long[MAX_PLY + 1];
+
+    private long nodes;
+    private long maxNodes;
+    private long deadline;
+    private volatile boolean stopped;
+    private int rootBestMove;
+
+    public Search(ChessMatch chessMatch, TranspositionTable table) {
+        this.chessMatch = chessMatch;
+        this.table = table;
+        for (int i = 0; i < moveLists.length; i++) {
+            moveLists[i] = new MoveList();
+        }
+    }
+
+    // A zero timeMillis or maxNodes leaves that budget open; maxDepth always bounds the search.
+    public SearchResult search(int maxDepth, long timeMillis, long maxNodes) throws BoardException {
+        table.newSearch();
+        stopped = false;
+        return iterate(maxDepth, timeMillis, maxNodes, 1);
+    }
+
+    public void stop() {
+        stopped = true;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    // Does not clear the stop flag, so a search stopped before it got to run returns at once.
+    SearchResult iterate(int maxDepth, long timeMillis, long maxNodes, int firstDepth) throws BoardException {
+        long start = System.nanoTime();
+        this.maxNodes = maxNodes;
+        deadline = timeMillis > 0 ? start + timeMillis * 1_000_000 : Long.MAX_VALUE;
+        nodes = 0;
+        for (int[] k : killers) {
+            k[0] = 0;
+            k[1] = 0;
+        }
+        for (int[] h : history) {
+            Arrays.fill(h, 0);
+        }
+
+        MoveList rootMoves = new MoveList();
+        chessMatch.generateLegalMoves(rootMoves);
+        if (rootMoves.isEmpty()) {
+            return new SearchResult(0, chessMatch.getCheck() ? -MATE : 0, 0, 0, 0);
+        }
+
+        int bestMove = rootMoves.get(0);
+        int bestScore = 0;
+        int completedDepth = 0;
+        int score = 0;
+        for (int depth = firstDepth; depth <= Math.min(maxDepth, MAX_PLY); depth++) {
+            int delta = ASPIRATION_WINDOW;
+            int alpha = depth >= 4 ? Math.max(score - delta, -INFINITE) : -INFINITE;
+            int beta = depth >= 4 ? Math.min(score + delta, INFINITE) : INFINITE;
+            while (true) {
+                int s = negamax(depth, alpha, beta, 0);
+                if (stopped) {
+                    break;
+                }
+                if (s <= alpha) {
+                    alpha = Math.max(s - delta, -INFINITE);
+                } else if (s >= beta) {
+                    beta = Math.min(s + delta, INFINITE);
+                } else {
+                    score = s;
+                    break;
+                }
+                delta *= 2;
+            }
+            if (stopped) {
+                break;
+            }
+            bestMove = rootBestMove;
+            bestScore = score;
+            completedDepth = depth;
+
+            // Another iteration costs several times the last one, so it is not started past half the budget.
+            if (Math.abs(score) >= MATE - MAX_PLY || timeMillis > 0 && System.nanoTime() - start > timeMillis * 500_000) {
+                break;
+            }
+        }
+        return new SearchResult(bestMove, bestScore, completedDepth, nodes, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private int negamax(int depth, int alpha, int beta, int ply) throws BoardException {
+        if (depth <= 0) {
+            return quiesce(alpha, beta, ply);
+        }
+        if (++nodes % 2048 == 0) {
+            checkLimits();
+        }
+        if (stopped) {
+            return 0;
+        }
+
+        long key = chessMatch.getZobristKey();
+        keys[ply] = key;
+        if (ply > 0 && isRepetition(ply)) {
+            return 0;
+        }
+        if (ply >= MAX_PLY) {
+            return Evaluation.evaluate(chessMatch);
+        }
+
+        boolean pvNode = beta - alpha > 1;
+        int ttMove = 0;
+        long entry = table.probe(key);
+        if (entry != 0) {
+            ttMove = TranspositionTable.move(entry);
+            if (!pvNode && ply > 0 && TranspositionTable.depth(entry) >= depth) {
+                int s = fromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || bound == TranspositionTable.LOWER && s >= beta
+                        || bound == TranspositionTable.UPPER && s <= alpha) {
+                    return s;
+                }
+            }
+        }
+
+        MoveList moves = moveLists[ply];
+        moves.clear();
+        chessMatch.generateLegalMoves(moves);
+        boolean inCheck = chessMatch.getCheck();
+        if (moves.isEmpty()) {
+            return inCheck ? -MATE + ply : 0;
+        }
+        scoreMoves(moves, ply, ttMove);
+
+        int originalAlpha = alpha;
+        int best = -INFINITE;
+        int bestMove = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = nextMove(moves, ply, i);
+            boolean quiet = !isCapture(move) && MoveList.flags(move) == 0;
+
+            chessMatch.makeMove(move);
+            int extension = chessMatch.getCheck() ? 1 : 0;
+            int s;
+            if (i == 0) {
+                s = -negamax(depth - 1 + extension, -beta, -alpha, ply + 1);
+            } else {
+                // Late quiet moves are searched shallower with a null window and only re-searched if they surprise.
+                int reduction = depth >= 3 && i >= 4 && quiet && !inCheck && extension == 0 ? (i >= 12 ? 2 : 1) : 0;
+                s = -negamax(depth - 1 - reduction + extension, -alpha - 1, -alpha, ply + 1);
+                if (s > alpha && (reduction > 0 || s < beta)) {
+                    s = -negamax(depth - 1 + extension, -beta, -alpha, ply + 1);
+                }
+            }
+            chessMatch.undoMove();
+            if (stopped) {
+                return 0;
+            }
+
+            if (s > best) {
+                best = s;
+                bestMove = move;
+                if (ply == 0) {
+                    rootBestMove = move;
+                }
+                if (s > alpha) {
+                    alpha = s;
+                    if (alpha >= beta) {
+                        if (quiet) {
+                            storeKiller(move, ply);
+                            updateHistory(move, depth);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+
+        int bound = best >= beta ? TranspositionTable.LOWER : best > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+        table.store(key, bestMove, toTable(best, ply), depth, bound);
+        return best;
+    }
+
+    // Only captures and promotions are generated, unless the side to move is in check and must answer it. Without
+    // the quiet moves a stalemate goes unseen here and is scored by the evaluation.
+    private int quiesce(int alpha, int beta, int ply) throws BoardException {
+        if (++nodes % 2048 == 0) {
+            checkLimits();
+        }
+        if (stopped) {
+            return 0;
+        }
+        if (ply >= MAX_PLY) {
+            return Evaluation.evaluate(chessMatch);
+        }
+
+        boolean inCheck = chessMatch.getCheck();
+        int best = -INFINITE;
+        if (!inCheck) {
+            best = Evaluation.evaluate(chessMatch);
+            if (best >= beta) {
+                return best;
+            }
+            alpha = Math.max(alpha, best);
+        }
+
+        MoveList moves = moveLists[ply];
+        moves.clear();
+        if (inCheck) {
+            chessMatch.generateLegalMoves(moves);
+            if (moves.isEmpty()) {
+                return -MATE + ply;
+            }
+        } else {
+            chessMatch.generateLegalCaptures(moves);
+        }
+        scoreMoves(moves, ply, 0);
+
+        for (int i = 0; i < moves.size(); i++) {
+            int move = nextMove(moves, ply, i);
+            chessMatch.makeMove(move);
+            int s = -quiesce(-beta, -alpha, ply + 1);
+            chessMatch.undoMove();
+            if (stopped) {
+                return 0;
+            }
+            if (s > best) {
+                best = s;
+                if (s > alpha) {
+                    alpha = s;
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private void checkLimits() {
+        if (System.nanoTime() > deadline || maxNodes > 0 && nodes >= maxNodes) {
+            stopped = true;
+        }
+    }
+
+    private boolean isRepetition(int ply) {
+        for (int i = ply - 2; i >= 0; i -= 2) {
+            if (keys[i] == keys[ply]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Hash move first, then captures by most valuable victim and least valuable attacker, then killers and history.
+    private void scoreMoves(MoveList moves, int ply, int ttMove) {
+        int[] scores = moveScores[ply];
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            if (move == ttMove) {
+                scores[i] = TT_MOVE_SCORE;
+            } else if (isCapture(move)) {
+                int victim = pieceAt(MoveList.to(move));
+                scores[i] = CAPTURE_SCORE + (victim < 0 ? 0 : victim) * 10 - pieceAt(MoveList.from(move));
+            } else if (MoveList.flags(move) == PieceType.QUEEN.getValue()) {
+                scores[i] = PROMOTION_SCORE;
+            } else if (move == killers[ply][0]) {
+                scores[i] = KILLER_SCORE;
+            } else if (move == killers[ply][1]) {
+                scores[i] = KILLER_SCORE - 1;
+            } else {
+                scores[i] = history[MoveList.from(move)][MoveList.to(move)];
+            }
+        }
+    }
+
+    // Selection sort one step at a time: a cutoff usually comes early, so the rest is never sorted.
+    private int nextMove(MoveList moves, int ply, int index) {
+        int[] scores = moveScores[ply];
+        int best = index;
+        for (int i = index + 1; i < moves.size(); i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        int move = moves.get(best);
+        if (best != index) {
+            moves.set(best, moves.get(index));
+            moves.set(index, move);
+            int s = scores[best];
+            scores[best] = scores[index];
+            scores[index] = s;
+        }
+        return move;
+    }
+
+    private boolean isCapture(int move) {
+        Color them = chessMatch.getCurrentPlayer() == Color.WHITE ? Color.BLACK : Color.WHITE;
+        int from = MoveList.from(move);
+        int to = MoveList.to(move);
+        if ((chessMatch.getOccupancy(them) & 1L << to) != 0) {
+            return true;
+        }
+        // En passant: a pawn changing file onto an empty square
+        return (from & 7) != (to & 7) && (chessMatch.getBitboard(PieceType.PAWN, chessMatch.getCurrentPlayer()) & 1L << from) != 0;
+    }
+
+    private int pieceAt(int square) {
+        long bit = 1L << square;
+        for (int type = 0; type < 6; type++) {
+            PieceType t = PieceType.fromValue(type);
+            if (((chessMatch.getBitboard(t, Color.WHITE) | chessMatch.getBitboard(t, Color.BLACK)) & bit) != 0) {
+                return type;
+            }
+        }
+        return -1;
+    }
+
+    private void storeKiller(int move, int ply) {
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+    }
+
+    private void updateHistory(int move, int depth) {
+        int[] row = history[MoveList.from(move)];
+        row[MoveList.to(move)] += depth * depth;
+        if (row[MoveList.to(move)] > HISTORY_LIMIT) {
+            for (int[] h : history) {
+                for (int i = 0; i < h.length; i++) {
+                    h[i] /= 2;
+                }
+            }
+        }
+    }
+
+    // Mate scores are stored relative to the node, not the root, so they stay right when reached by another path.
+    private static int toTable(int score, int ply) {
+        return score >= MATE - MAX_PLY ? score + ply : score <= -MATE + MAX_PLY ? score - ply : score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        return score >= MATE - MAX_PLY ? score - ply : score <= -MATE + MAX_PLY ? score + ply : score;
+    }
+}
@@ -0,0 +1,53 @@
+package com.company.chess.engine;
+
+public class SearchResult {
+
+    private final int move;
+    private final int score;
+    private final int depth;
+    private final long nodes;
+    private final long elapsedMillis;
+
+    public SearchResult(int move, int score, int depth, long nodes, long elapsedMillis) {
+        this.move = move;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public int getMove() {
+        return move;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public long getNodesPerSecond() {
+        return nodes * 1000 / Math.max(1, elapsedMillis);
+    }
+
+    public boolean isMate() {
+        return Math.abs(score) >= Search.MATE - Search.MAX_PLY;
+    }
+
+    @Override
+    public String toString() {
+        String s = isMate() ? "mate " + (score > 0 ? (Search.MATE - score + 1) / 2 : -(Search.MATE + score) / 2) : "cp " + score;
+        return "bestmove " + (move == 0 ? "(none)" : Perft.toUci(move)) + "  score " + s + "  depth " + depth
+                + "  nodes " + nodes + "  time " + elapsedMillis + " ms  nps " + getNodesPerSecond();
+    }
+}
@@ -0,0 +1,126 @@
+package com.company.chess.engine;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+public class TranspositionTable {
+
+    public static final int UPPER = 1;
+    public static final int LOWER = 2;
+    public static final int EXACT = 3;
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private static final int ENTRY_BYTES = 16;
+    // A direct buffer is indexed by int, so big tables are split into 1 GB chunks.
+    private static final int CHUNK_SHIFT = 26;
+    private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+
+    private final ByteBuffer[] chunks;
+    private final long mask;
+    private volatile int generation;
+
+    public TranspositionTable(int megabytes) {
+        if (megabytes < 1) {
+            throw new IllegalArgumentException("Transposition table size must be at least 1 MB.");
+        }
+        long entries = Long.highestOneBit((long) megabytes * 1024 * 1024 / ENTRY_BYTES);
+        mask = entries - 1;
+        int chunkEntries = (int) Math.min(entries, 1L << CHUNK_SHIFT);
+        chunks = new ByteBuffer[(int) (entries / chunkEntries)];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = ByteBuffer.allocateDirect(chunkEntries * ENTRY_BYTES).order(ByteOrder.nativeOrder());
+        }
+    }
+
+    public long capacity() {
+        return mask + 1;
+    }
+
+    // Each slot holds (key ^ data, data). Two writers racing on a slot can leave a key from one and data from
+    // the other; that pair no longer XORs back to the probed key, so a torn entry simply reads as a miss.
+    public long probe(long key) {
+        long index = key & mask;
+        ByteBuffer chunk = chunks[(int) (index >>> CHUNK_SHIFT)];
+        int offset = (int) (index & CHUNK_MASK) * ENTRY_BYTES;
+        long data = (long) LONGS.getOpaque(chunk, offset + 8);
+        long check = (long) LONGS.getOpaque(chunk, offset);
+        return data != 0 && (check ^ data) == key ? data : 0L;
+    }
+
+    public void store(long key, int move, int score, int depth, int bound) {
+        long index = key & mask;
+        ByteBuffer chunk = chunks[(int) (index >>> CHUNK_SHIFT)];
+        int offset = (int) (index & CHUNK_MASK) * ENTRY_BYTES;
+        long oldData = (long) LONGS.getOpaque(chunk, offset + 8);
+        boolean sameKey = oldData != 0 && ((long) LONGS.getOpaque(chunk, offset) ^ oldData) == key;
+
+        // Deeper results from the current search are kept, unless the new one is exact or for the same position.
+        if (oldData != 0 && !sameKey && bound != EXACT && generation(oldData) == (generation & 63) && depth(oldData) > depth) {
+            return;
+        }
+        if (sameKey && move == 0) {
+            move = move(oldData);
+        }
+        long data = pack(move, score, depth, bound, generation);
+        LONGS.setOpaque(chunk, offset, key ^ data);
+        LONGS.setOpaque(chunk, offset + 8, data);
+    }
+
+    public void newSearch() {
+        generation++;
+    }
+
+    public void clear() {
+        for (ByteBuffer chunk : chunks) {
+            for (int offset = 0; offset < chunk.capacity(); offset += 8) {
+                LONGS.setOpaque(chunk, offset, 0L);
+            }
+        }
+        generation = 0;
+    }
+
+    // Permille of a sample of slots written during the current search, as reported by UCI hashfull.
+    public int hashfull() {
+        int used = 0;
+        int current = generation & 63;
+        for (int i = 0; i < 1000; i++) {
+            long data = (long) LONGS.getOpaque(chunks[0], i * ENTRY_BYTES + 8);
+            if (data != 0 && generation(data) == current) {
+                used++;
+            }
+        }
+        return used;
+    }
+
+    // Data layout: move in bits 0-15, score in 16-31, depth in 32-39, bound in 40-41, generation in 42-47.
+    private static long pack(int move, int score, int depth, int bound, int generation) {
+        return (move & 0xFFFFL)
+                | (score & 0xFFFFL) << 16
+                | (long) Math.max(0, Math.min(255, depth)) << 32
+                | (long) bound << 40
+                | (long) (generation & 63) << 42;
+    }
+
+    public static int move(long data) {
+        return (int) (data & 0xFFFF);
+    }
+
+    public static int score(long data) {
+        return (short) (data >>> 16);
+    }
+
+    public static int depth(long data) {
+        return (int) (data >>> 32 & 0xFF);
+    }
+
+    public static int bound(long data) {
+        return (int) (data >>> 40 & 3);
+    }
+
+    private static int generation(long data) {
+        return (int) (data >>> 42 & 63);
+    }
+}
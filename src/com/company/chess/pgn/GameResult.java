@@ -0,0 +1,26 @@
+package com.company.chess.pgn;
+
+public enum GameResult {
+
+    WHITE_WINS("1-0"),
+    BLACK_WINS("0-1"),
+    DRAW("1/2-1/2"),
+    UNKNOWN("*");
+
+    private static final GameResult[] VALUES = values();
+
+    private final String pgn;
+
+    GameResult(String pgn) {
+        this.pgn = pgn;
+    }
+
+    public String getPgn() {
+        return pgn;
+    }
+
+    public static GameResult fromOrdinal(int ordinal) {
+        return VALUES[ordinal];
+    }
+
+}
@@ -0,0 +1,117 @@
+package com.company.chess.pgn;
+
+import com.company.boardgame.MoveList;
+import com.company.chess.rules.ChessMatch;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// One replayed game as handed to the callback. The reader reuses it for the next game, so a handler that
+// wants to keep anything must copy it out before returning.
+public class PgnGame {
+
+    private final MoveList moves = new MoveList();
+    private ByteBuffer buffer;
+    private long offset;
+    private int tagsStart;
+    private int tagsEnd;
+    private ChessMatch match;
+    private GameResult result;
+    private String error;
+
+    void reset(ByteBuffer buffer, long offset, int tagsStart) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.tagsStart = tagsStart;
+        tagsEnd = tagsStart;
+        moves.clear();
+        match = null;
+        result = GameResult.UNKNOWN;
+        error = null;
+    }
+
+    void setTagsEnd(int tagsEnd) {
+        this.tagsEnd = tagsEnd;
+    }
+
+    void setMatch(ChessMatch match) {
+        this.match = match;
+    }
+
+    void setResult(GameResult result) {
+        this.result = result;
+    }
+
+    void fail(String error) {
+        if (this.error == null) {
+            this.error = error;
+        }
+    }
+
+    // Byte offset of the game's first tag in the file.
+    public long getOffset() {
+        return offset;
+    }
+
+    // Position after the last move that could be replayed; null if the start position itself was invalid.
+    public ChessMatch getMatch() {
+        return match;
+    }
+
+    public MoveList getMoves() {
+        return moves;
+    }
+
+    public GameResult getResult() {
+        return result;
+    }
+
+    public boolean isValid() {
+        return error == null;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    // Tag values are only decoded when asked for, so a replay that never looks at tags creates no Strings.
+    public String getTag(String name) {
+        int i = tagsStart;
+        while (i < tagsEnd) {
+            if (buffer.get(i) == '[' && matchesName(i + 1, name)) {
+                int start = i + 1 + name.length();
+                while (start < tagsEnd && buffer.get(start) != '"') {
+                    start++;
+                }
+                int end = start + 1;
+                while (end < tagsEnd && buffer.get(end) != '"') {
+                    end += buffer.get(end) == '\\' ? 2 : 1;
+                }
+                return end < tagsEnd ? decode(start + 1, end) : null;
+            }
+            while (i < tagsEnd && buffer.get(i) != '\n') {
+                i++;
+            }
+            i++;
+        }
+        return null;
+    }
+
+    private boolean matchesName(int at, String name) {
+        for (int k = 0; k < name.length(); k++) {
+            if (at + k >= tagsEnd || buffer.get(at + k) != name.charAt(k)) {
+                return false;
+            }
+        }
+        byte next = at + name.length() < tagsEnd ? buffer.get(at + name.length()) : 0;
+        return next == ' ' || next == '\t';
+    }
+
+    private String decode(int start, int end) {
+        byte[] bytes = new byte[end - start];
+        for (int k = 0; k < bytes.length; k++) {
+            bytes[k] = buffer.get(start + k);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
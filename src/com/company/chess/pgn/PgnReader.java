@@ -0,0 +1,334 @@
+package com.company.chess.pgn;
+
+import com.company.boardgame.BoardException;
+import com.company.chess.rules.ChessException;
+import com.company.chess.rules.ChessMatch;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+// Replays every game of a PGN file through ChessMatch. The file is memory-mapped in ranges that start on game
+// boundaries, so ranges can be replayed on separate threads, and the movetext is tokenized in place: SAN
+// moves are resolved straight from the mapped bytes against the legal moves of the position.
+public class PgnReader {
+
+    private static final long RANGE_BYTES = 64L << 20;
+    private static final long MIN_RANGE_BYTES = 1L << 20;
+    private static final GameResult[] RESULTS = GameResult.values();
+
+    private final long size;
+    private final long[] offsets;
+    private final ByteBuffer[] ranges;
+
+    public PgnReader(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            size = channel.size();
+            long count = Math.max(ForkJoinPool.getCommonPoolParallelism() * 4L, size / RANGE_BYTES + 1);
+            count = Math.max(1, Math.min(count, size / MIN_RANGE_BYTES));
+
+            List<Long> bounds = new ArrayList<>();
+            bounds.add(0L);
+            for (long i = 1; i < count; i++) {
+                long bound = alignToGame(channel, Math.max(size * i / count, bounds.get(bounds.size() - 1) + 1));
+                if (bound < size) {
+                    bounds.add(bound);
+                }
+            }
+            bounds.add(size);
+
+            offsets = new long[bounds.size() - 1];
+            ranges = new ByteBuffer[offsets.length];
+            for (int i = 0; i < ranges.length; i++) {
+                long length = bounds.get(i + 1) - bounds.get(i);
+                if (length > Integer.MAX_VALUE) {
+                    throw new IOException("No game boundary found in 2 GB of " + path + " after byte " + bounds.get(i) + ".");
+                }
+                offsets[i] = bounds.get(i);
+                ranges[i] = channel.map(FileChannel.MapMode.READ_ONLY, offsets[i], length);
+            }
+        }
+    }
+
+    public long size() {
+        return size;
+    }
+
+    // Ranges start on game boundaries and follow each other in file order.
+    public int getRangeCount() {
+        return ranges.length;
+    }
+
+    // Games are handed to the handler in file order, on the calling thread. Returns the number of games.
+    public long replay(Consumer<PgnGame> handler) {
+        long games = 0;
+        for (int i = 0; i < ranges.length; i++) {
+            games += replay(i, handler);
+        }
+        return games;
+    }
+
+    // Replays the games of one range in file order, on the calling thread. Separate ranges may be replayed
+    // concurrently.
+    public long replay(int range, Consumer<PgnGame> handler) {
+        return new RangeReader(ranges[range].duplicate(), offsets[range]).replay(handler);
+    }
+
+    // Ranges are replayed concurrently, so the handler is called from several threads at once.
+    public long parallelReplay(Consumer<PgnGame> handler, ForkJoinPool pool) {
+        List<ForkJoinTask<Long>> tasks = new ArrayList<>();
+        for (int i = 0; i < ranges.length; i++) {
+            int range = i;
+            tasks.add(pool.submit(() -> replay(range, handler)));
+        }
+        long games = 0;
+        for (ForkJoinTask<Long> task : tasks) {
+            games += task.join();
+        }
+        return games;
+    }
+
+    // A game starts with a tag at the beginning of a line right after a blank line; comments and movetext
+    // never put '[' there.
+    private static long alignToGame(FileChannel channel, long position) throws IOException {
+        ByteBuffer window = ByteBuffer.allocate(1 << 16);
+        boolean lineEmpty = false;
+        boolean previousLineBlank = false;
+        long size = channel.size();
+        while (position < size) {
+            window.clear();
+            int read = channel.read(window, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                byte c = window.get(i);
+                if (c == '\n') {
+                    previousLineBlank = lineEmpty;
+                    lineEmpty = true;
+                } else if (c != '\r' && c != ' ' && c != '\t') {
+                    if (c == '[' && lineEmpty && previousLineBlank) {
+                        return position + i;
+                    }
+                    lineEmpty = false;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private static class RangeReader {
+
+        private final ByteBuffer buffer;
+        private final long base;
+        private final int limit;
+        private final PgnGame game = new PgnGame();
+        private final SanResolver san = new SanResolver();
+        private int index;
+
+        RangeReader(ByteBuffer buffer, long base) {
+            this.buffer = buffer;
+            this.base = base;
+            this.limit = buffer.limit();
+        }
+
+        long replay(Consumer<PgnGame> handler) {
+            long games = 0;
+            try {
+                while (next()) {
+                    handler.accept(game);
+                    games++;
+                }
+            } catch (BoardException e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+            return games;
+        }
+
+        private boolean next() throws BoardException {
+            // Whitespace, escape lines and stray bytes such as a byte order mark
+            while (index < limit) {
+                byte c = buffer.get(index);
+                if (c == '%' && atLineStart(index)) {
+                    skipLine();
+                } else if (isSpace(c) || c < 0) {
+                    index++;
+                } else {
+                    break;
+                }
+            }
+            if (index >= limit) {
+                return false;
+            }
+
+            game.reset(buffer, base + index, index);
+            while (index < limit && buffer.get(index) == '[') {
+                skipLine();
+                while (index < limit && isSpace(buffer.get(index))) {
+                    index++;
+                }
+            }
+            game.setTagsEnd(index);
+
+            ChessMatch match = null;
+            try {
+                String fen = game.getTag("FEN");
+                match = fen == null ? new ChessMatch() : ChessMatch.fromFen(fen);
+            } catch (ChessException e) {
+                game.fail("Invalid start position: " + e.getMessage());
+            }
+            game.setMatch(match);
+
+            if (!readMovetext(match)) {
+                String result = game.getTag("Result");
+                for (GameResult r : RESULTS) {
+                    if (r.getPgn().equals(result)) {
+                        game.setResult(r);
+                    }
+                }
+            }
+            return true;
+        }
+
+        // Returns true when the movetext ended with its termination marker.
+        private boolean readMovetext(ChessMatch match) throws BoardException {
+            while (index < limit) {
+                byte c = buffer.get(index);
+                if (isSpace(c) || c == ')') {
+                    index++;
+                } else if (c == '{') {
+                    skipComment();
+                } else if (c == ';') {
+                    skipLine();
+                } else if (c == '(') {
+                    skipVariation();
+                } else if (c == '$') {
+                    index++;
+                    while (index < limit && isDigit(buffer.get(index))) {
+                        index++;
+                    }
+                } else if (c == '[' && atLineStart(index)) {
+                    return false;
+                } else if (c == '*') {
+                    index++;
+                    game.setResult(GameResult.UNKNOWN);
+                    return true;
+                } else if (isDigit(c) && terminates()) {
+                    return true;
+                } else if (isDigit(c) && c != '0') {
+                    // Move number, with one dot or three
+                    while (index < limit && (isDigit(buffer.get(index)) || buffer.get(index) == '.')) {
+                        index++;
+                    }
+                } else {
+                    int start = index;
+                    do {
+                        index++;
+                    } while (index < limit && !isDelimiter(buffer.get(index)));
+                    if (game.isValid()) {
+                        play(match, start, index);
+                    }
+                }
+            }
+            return false;
+        }
+
+        private void play(ChessMatch match, int start, int end) throws BoardException {
+            int move = san.resolve(match, buffer, start, end);
+            if (move < 0) {
+                byte[] token = new byte[end - start];
+                for (int k = 0; k < token.length; k++) {
+                    token[k] = buffer.get(start + k);
+                }
+                game.fail("Illegal or ambiguous move " + new String(token, StandardCharsets.US_ASCII)
+                        + " at ply " + (game.getMoves().size() + 1) + ".");
+                return;
+            }
+            match.makeMove(move);
+            game.getMoves().add(move);
+        }
+
+        private boolean terminates() {
+            for (GameResult r : RESULTS) {
+                String pgn = r.getPgn();
+                if (r != GameResult.UNKNOWN && matches(pgn)) {
+                    index += pgn.length();
+                    game.setResult(r);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean matches(String s) {
+            if (index + s.length() > limit) {
+                return false;
+            }
+            for (int k = 0; k < s.length(); k++) {
+                if (buffer.get(index + k) != s.charAt(k)) {
+                    return false;
+                }
+            }
+            return index + s.length() == limit || isDelimiter(buffer.get(index + s.length()));
+        }
+
+        private void skipComment() {
+            while (index < limit && buffer.get(index) != '}') {
+                index++;
+            }
+            index++;
+        }
+
+        private void skipVariation() {
+            int depth = 0;
+            while (index < limit) {
+                byte c = buffer.get(index);
+                if (c == '{') {
+                    skipComment();
+                    continue;
+                }
+                if (c == ';') {
+                    skipLine();
+                    continue;
+                }
+                index++;
+                if (c == '(') {
+                    depth++;
+                } else if (c == ')' && --depth == 0) {
+                    return;
+                }
+            }
+        }
+
+        private void skipLine() {
+            while (index < limit && buffer.get(index) != '\n') {
+                index++;
+            }
+        }
+
+        private boolean atLineStart(int i) {
+            return i == 0 || buffer.get(i - 1) == '\n';
+        }
+
+        private static boolean isSpace(byte c) {
+            return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+        }
+
+        private static boolean isDigit(byte c) {
+            return c >= '0' && c <= '9';
+        }
+
+        private static boolean isDelimiter(byte c) {
+            return isSpace(c) || c == '{' || c == '(' || c == ')' || c == ';' || c == '$';
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.company.chess.pgn;
+
+import com.company.boardgame.BoardException;
+import com.company.boardgame.MoveList;
+import com.company.chess.rules.ChessMatch;
+import com.company.chess.rules.PieceType;
+
+import java.nio.ByteBuffer;
+
+// Matches a SAN token, read in place from the buffer, against the legal moves of the match.
+class SanResolver {
+
+    private final MoveList legal = new MoveList();
+
+    // Returns the packed move, or -1 when the token names no legal move or more than one.
+    int resolve(ChessMatch chessMatch, ByteBuffer buffer, int start, int end) throws BoardException {
+        while (end > start && isSuffix(buffer.get(end - 1))) {
+            end--;
+        }
+        if (end - start < 2) {
+            return -1;
+        }
+        legal.clear();
+        chessMatch.generateLegalMoves(legal);
+        long kings = chessMatch.getBitboard(PieceType.KING, chessMatch.getCurrentPlayer());
+
+        // Castling, also written with zeros
+        byte first = buffer.get(start);
+        if (first == 'O' || first == '0') {
+            int length = end - start;
+            if (length != 3 && length != 5) {
+                return -1;
+            }
+            int king = Long.numberOfTrailingZeros(kings);
+            return find(chessMatch, PieceType.KING, king & 7, king >>> 3, king + (length == 3 ? 2 : -2), 0);
+        }
+
+        PieceType type = PieceType.PAWN;
+        int i = start;
+        switch (first) {
+            case 'N':
+                type = PieceType.KNIGHT;
+                break;
+            case 'B':
+                type = PieceType.BISHOP;
+                break;
+            case 'R':
+                type = PieceType.ROOK;
+                break;
+            case 'Q':
+                type = PieceType.QUEEN;
+                break;
+            case 'K':
+                type = PieceType.KING;
+                break;
+            default:
+                i--;
+        }
+        i++;
+
+        // Promotion, as "e8=Q" or "e8Q"
+        int promotion = 0;
+        int last = end - 1;
+        int promoted = promotionType(buffer.get(last));
+        if (type == PieceType.PAWN && promoted > 0) {
+            promotion = promoted;
+            last--;
+            if (buffer.get(last) == '=') {
+                last--;
+            }
+        }
+
+        // Target square, then whatever comes before it is disambiguation and the capture mark
+        if (last - 1 < i || !isFile(buffer.get(last - 1)) || !isRank(buffer.get(last))) {
+            return -1;
+        }
+        int to = ('8' - buffer.get(last)) * 8 + buffer.get(last - 1) - 'a';
+        int fromFile = -1;
+        int fromRow = -1;
+        for (int j = i; j < last - 1; j++) {
+            byte c = buffer.get(j);
+            if (isFile(c)) {
+                fromFile = c - 'a';
+            } else if (isRank(c)) {
+                fromRow = '8' - c;
+            } else if (c != 'x' && c != ':') {
+                return -1;
+            }
+        }
+        return find(chessMatch, type, fromFile, fromRow, to, promotion);
+    }
+
+    private int find(ChessMatch chessMatch, PieceType type, int fromFile, int fromRow, int to, int promotion) {
+        long pieces = chessMatch.getBitboard(type, chessMatch.getCurrentPlayer());
+        int found = -1;
+        for (int k = 0; k < legal.size(); k++) {
+            int move = legal.get(k);
+            int from = MoveList.from(move);
+            if (MoveList.to(move) != to || MoveList.flags(move) != promotion || (pieces & 1L << from) == 0
+                    || fromFile >= 0 && (from & 7) != fromFile || fromRow >= 0 && from >>> 3 != fromRow) {
+                continue;
+            }
+            if (found >= 0) {
+                return -1;
+            }
+            found = move;
+        }
+        return found;
+    }
+
+    private static int promotionType(byte c) {
+        switch (c) {
+            case 'N':
+                return PieceType.KNIGHT.getValue();
+            case 'B':
+                return PieceType.BISHOP.getValue();
+            case 'R':
+                return PieceType.ROOK.getValue();
+            case 'Q':
+                return PieceType.QUEEN.getValue();
+            default:
+                return 0;
+        }
+    }
+
+    private static boolean isSuffix(byte c) {
+        return c == '+' || c == '#' || c == '!' || c == '?';
+    }
+
+    private static boolean isFile(byte c) {
+        return c >= 'a' && c <= 'h';
+    }
+
+    private static boolean isRank(byte c) {
+        return c >= '1' && c <= '8';
+    }
+}
@@ -1,10 +1,10 @@
 package com.company.chess.pieces;
 
 import com.company.boardgame.Board;
-import com.company.boardgame.BoardException;
-import com.company.boardgame.Position;
+import com.company.chess.rules.AttackTables;
 import com.company.chess.rules.ChessPiece;
 import com.company.chess.rules.Color;
+import com.company.chess.rules.PieceType;
 
 public class Bishop extends ChessPiece {
 
@@ -17,60 +17,13 @@ public class Bishop extends ChessPiece {
 		return "B";
 	}
 
-	private boolean canMove(Position position) throws BoardException {
-		ChessPiece p = (ChessPiece) getBoard().getPiece(position);
-		return p == null || p.getColor() != getColor();
+	@Override
+	public PieceType getType() {
+		return PieceType.BISHOP;
 	}
 
 	@Override
-	public boolean[][] possibleMoves() throws BoardException {
-		boolean[][] mat = new boolean[getBoard().getRows()][getBoard().getColumns()];
-		Position p = new Position(0, 0);
-
-		// Up-Left
-		p.setValues(position.getRow() - 1, position.getColumn() - 1);
-		while (getBoard().positionExists(p) && !getBoard().thereIsAPiece(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-			p.setRow(p.getRow() - 1);
-			p.setColumn(p.getColumn() - 1);
-		}
-		if (getBoard().positionExists(p) && isThereOpponentPiece(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-
-		// Up-Right
-		p.setValues(position.getRow() - 1, position.getColumn() + 1);
-		while (getBoard().positionExists(p) && !getBoard().thereIsAPiece(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-			p.setColumn(p.getColumn() + 1);
-			p.setRow(p.getRow() - 1);
-		}
-		if (getBoard().positionExists(p) && isThereOpponentPiece(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-
-		// Down-Left
-		p.setValues(position.getRow() + 1, position.getColumn() - 1);
-		while (getBoard().positionExists(p) && !getBoard().thereIsAPiece(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-			p.setRow(p.getRow() + 1);
-			p.setColumn(p.getColumn() - 1);
-		}
-		if (getBoard().positionExists(p) && isThereOpponentPiece(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-
-		// Down-Right
-		p.setValues(position.getRow() + 1, position.getColumn() + 1);
-		while (getBoard().positionExists(p) && !getBoard().thereIsAPiece(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-			p.setColumn(p.getColumn() + 1);
-			p.setRow(p.getRow() + 1);
-		}
-		if (getBoard().positionExists(p) && isThereOpponentPiece(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-
-		return mat;
+	public long moveMask() {
+		return AttackTables.bishopAttacks(getSquare(), getBoard().getOccupied()) & ~ownPieces();
 	}
 }
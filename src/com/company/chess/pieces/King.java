@@ -1,11 +1,11 @@
 package com.company.chess.pieces;
 
 import com.company.boardgame.Board;
-import com.company.boardgame.BoardException;
-import com.company.boardgame.Position;
+import com.company.chess.rules.AttackTables;
 import com.company.chess.rules.ChessMatch;
 import com.company.chess.rules.ChessPiece;
 import com.company.chess.rules.Color;
+import com.company.chess.rules.PieceType;
 
 public class King extends ChessPiece {
 
@@ -21,99 +21,40 @@ public class King extends ChessPiece {
         return "K";
     }
 
-    private boolean testRookCastling(Position position) throws BoardException {
-        ChessPiece p = (ChessPiece) getBoard().getPiece(position);
-        return p instanceof Rook && p.getColor() == getColor() && p.getMoveCount() == 0;
+    @Override
+    public PieceType getType() {
+        return PieceType.KING;
     }
 
-    private boolean canMove(Position position) throws BoardException {
-        ChessPiece p = (ChessPiece) getBoard().getPiece(position);
-        return p == null || p.getColor() != getColor();
+    private boolean testRookCastling(int square, int column) {
+        if (column < 0 || column > 7) {
+            return false;
+        }
+        ChessPiece p = (ChessPiece) getBoard().pieceAt(square);
+        return p instanceof Rook && p.getColor() == getColor() && p.getMoveCount() == 0;
     }
 
     @Override
-    public boolean[][] possibleMoves() throws BoardException {
-        boolean[][] mat = new boolean[getBoard().getRows()][getBoard().getColumns()];
-        Position p = new Position(0, 0);
-
-        // Above
-
-        p.setValues(position.getRow() - 1, position.getColumn());
-        if (getBoard().positionExists(p) && canMove(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-
-        // Below
-
-        p.setValues(position.getRow() + 1, position.getColumn());
-        if (getBoard().positionExists(p) && canMove(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-
-        // Left
-
-        p.setValues(position.getRow(), position.getColumn() - 1);
-        if (getBoard().positionExists(p) && canMove(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-
-        // Right
-
-        p.setValues(position.getRow(), position.getColumn() + 1);
-        if (getBoard().positionExists(p) && canMove(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-
-        // Left-Up
-
-        p.setValues(position.getRow() - 1, position.getColumn() - 1);
-        if (getBoard().positionExists(p) && canMove(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-
-        // Right-Up
-
-        p.setValues(position.getRow() - 1, position.getColumn() + 1);
-        if (getBoard().positionExists(p) && canMove(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-
-        // Left-Down
-
-        p.setValues(position.getRow() + 1, position.getColumn() - 1);
-        if (getBoard().positionExists(p) && canMove(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-
-        // Right-Down
-
-        p.setValues(position.getRow() + 1, position.getColumn() + 1);
-        if (getBoard().positionExists(p) && canMove(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
+    public long moveMask() {
+        int square = getSquare();
+        long mask = AttackTables.kingAttacks(square) & ~ownPieces();
 
         // Castling
         if (getMoveCount() == 0 && !chessMatch.getCheck()) {
+            long occupied = getBoard().getOccupied();
             // Kingside
-            Position rookOnePos = new Position(position.getRow(), position.getColumn() + 3);
-            if (testRookCastling(rookOnePos)) {
-                Position p1 = new Position(position.getRow(), position.getColumn() + 1);
-                Position p2 = new Position(position.getRow(), position.getColumn() + 2);
-                if (getBoard().getPiece(p1) == null && getBoard().getPiece(p2) == null) {
-                    mat[position.getRow()][position.getColumn() + 2] = true;
+            if (testRookCastling(square + 3, (square & 7) + 3)) {
+                if ((occupied & (1L << square + 1 | 1L << square + 2)) == 0) {
+                    mask |= 1L << square + 2;
                 }
             }
             // Queenside
-            Position rookTwoPos = new Position(position.getRow(), position.getColumn() - 4);
-            if (testRookCastling(rookTwoPos)) {
-                Position p1 = new Position(position.getRow(), position.getColumn() - 1);
-                Position p2 = new Position(position.getRow(), position.getColumn() - 2);
-                Position p3 = new Position(position.getRow(), position.getColumn() - 3);
-                if (getBoard().getPiece(p1) == null && getBoard().getPiece(p2) == null && getBoard().getPiece(p3) == null) {
-                    mat[position.getRow()][position.getColumn() - 2] = true;
+            if (testRookCastling(square - 4, (square & 7) - 4)) {
+                if ((occupied & (1L << square - 1 | 1L << square - 2 | 1L << square - 3)) == 0) {
+                    mask |= 1L << square - 2;
                 }
             }
         }
-        return mat;
+        return mask;
     }
 }
@@ -1,10 +1,10 @@
 package com.company.chess.pieces;
 
 import com.company.boardgame.Board;
-import com.company.boardgame.BoardException;
-import com.company.boardgame.Position;
+import com.company.chess.rules.AttackTables;
 import com.company.chess.rules.ChessPiece;
 import com.company.chess.rules.Color;
+import com.company.chess.rules.PieceType;
 
 public class Knight extends ChessPiece {
 
@@ -17,76 +17,14 @@ public class Knight extends ChessPiece {
         return "N";
     }
 
-    private boolean canMove(Position position) throws BoardException {
-        ChessPiece p = (ChessPiece) getBoard().getPiece(position);
-        return p == null || p.getColor() != getColor();
+    @Override
+    public PieceType getType() {
+        return PieceType.KNIGHT;
     }
 
     @Override
-    public boolean[][] possibleMoves() throws BoardException {
-        boolean[][] mat = new boolean[getBoard().getRows()][getBoard().getColumns()];
-        Position p = new Position(0, 0);
-
-        // ⮝ ⮞ ⮟ ⮜
-
-        // ⮝ ⮝ ⮞
-
-        p.setValues(position.getRow() - 2, position.getColumn() + 1);
-        if (getBoard().positionExists(p) && canMove(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-
-        // ⮝ ⮝ ⮜
-
-        p.setValues(position.getRow() - 2, position.getColumn() - 1);
-        if (getBoard().positionExists(p) && canMove(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-
-        // ⮜ ⮜ ⮝
-
-        p.setValues(position.getRow() - 1, position.getColumn() - 2);
-        if (getBoard().positionExists(p) && canMove(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-
-        // ⮜ ⮜ ⮟
-
-        p.setValues(position.getRow() + 1, position.getColumn() - 2);
-        if (getBoard().positionExists(p) && canMove(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-
-        // ⮟ ⮟ ⮜
-
-        p.setValues(position.getRow() + 2, position.getColumn() - 1);
-        if (getBoard().positionExists(p) && canMove(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-
-        // ⮟ ⮟ ⮞
-
-        p.setValues(position.getRow() + 2, position.getColumn() + 1);
-        if (getBoard().positionExists(p) && canMove(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-
-        // ⮞ ⮞ ⮟
-
-        p.setValues(position.getRow() + 1, position.getColumn() + 2);
-        if (getBoard().positionExists(p) && canMove(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-
-        // ⮞ ⮞ ⮝
-
-        p.setValues(position.getRow() - 1, position.getColumn() - 2);
-        if (getBoard().positionExists(p) && canMove(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-
-
-        return mat;
+    public long moveMask() {
+        return AttackTables.knightAttacks(getSquare()) & ~ownPieces();
     }
 
 }
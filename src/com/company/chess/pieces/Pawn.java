@@ -1,11 +1,11 @@
 package com.company.chess.pieces;
 
 import com.company.boardgame.Board;
-import com.company.boardgame.BoardException;
-import com.company.boardgame.Position;
+import com.company.chess.rules.AttackTables;
 import com.company.chess.rules.ChessMatch;
 import com.company.chess.rules.ChessPiece;
 import com.company.chess.rules.Color;
+import com.company.chess.rules.PieceType;
 
 public class Pawn extends ChessPiece {
 
@@ -21,99 +21,41 @@ public class Pawn extends ChessPiece {
         return "P";
     }
 
-    private boolean canMove(Position position) throws BoardException {
-        ChessPiece p = (ChessPiece) getBoard().getPiece(position);
-        return p == null || p.getColor() != getColor();
+    @Override
+    public PieceType getType() {
+        return PieceType.PAWN;
     }
 
     @Override
-    public boolean[][] possibleMoves() throws BoardException {
-        boolean[][] mat = new boolean[getBoard().getRows()][getBoard().getColumns()];
-        Position p = new Position(0, 0);
-
-        if (getColor() == Color.WHITE) {
-
-
-            // Above
-            p.setValues(position.getRow() - 1, position.getColumn());
-            if (getBoard().positionExists(p) && !getBoard().thereIsAPiece(p)) {
-                mat[p.getRow()][p.getColumn()] = true;
-            }
-
-            // Above 1st
-            p.setValues(position.getRow() - 2, position.getColumn());
-            Position p2 = new Position(position.getRow() - 1, position.getColumn());
-            if (getBoard().positionExists(p) && !getBoard().thereIsAPiece(p) && getBoard().positionExists(p2) && !getBoard().thereIsAPiece(p2) && getMoveCount() == 0) {
-                mat[p.getRow()][p.getColumn()] = true;
-            }
-
-            // Left-Up
-            p.setValues(position.getRow() - 1, position.getColumn() - 1);
-            if (getBoard().positionExists(p) && canMove(p) && isThereOpponentPiece(p)) {
-                mat[p.getRow()][p.getColumn()] = true;
-            }
-
-            // Right-Up
-            p.setValues(position.getRow() - 1, position.getColumn() + 1);
-            if (getBoard().positionExists(p) && canMove(p) && isThereOpponentPiece(p)) {
-                mat[p.getRow()][p.getColumn()] = true;
-            }
+    public long moveMask() {
+        int square = getSquare();
+        int forward = getColor() == Color.WHITE ? -8 : 8;
+        long empty = ~getBoard().getOccupied();
+        long mask = AttackTables.pawnAttacks(getColor(), square) & opponentPieces();
 
-            // En passant
-            if (position.getRow() == 3) {
-                Position left = new Position(position.getRow(), position.getColumn() - 1);
-                if (getBoard().positionExists(left) && isThereOpponentPiece(left) && getBoard().getPiece(left) == chessMatch.getEnPassantVulnerability()) {
-                    mat[left.getRow() - 1][left.getColumn()] = true;
-                }
-                Position right = new Position(position.getRow(), position.getColumn() + 1);
-                if (getBoard().positionExists(right) && isThereOpponentPiece(right) && getBoard().getPiece(right) == chessMatch.getEnPassantVulnerability()) {
-                    mat[right.getRow() - 1][right.getColumn()] = true;
-                }
-            }
-
-        } else if (getColor() == Color.BLACK) {
-
-            // Above
-            p.setValues(position.getRow() + 1, position.getColumn());
-            if (getBoard().positionExists(p) && !getBoard().thereIsAPiece(p)) {
-                mat[p.getRow()][p.getColumn()] = true;
-            }
+        // Above
+        int one = square + forward;
+        if (one >= 0 && one < 64 && (empty & 1L << one) != 0) {
+            mask |= 1L << one;
 
             // Above 1st
-            p.setValues(position.getRow() + 2, position.getColumn());
-            Position p2 = new Position(position.getRow() + 1, position.getColumn());
-            if (getBoard().positionExists(p) && !getBoard().thereIsAPiece(p) && getBoard().positionExists(p2) && !getBoard().thereIsAPiece(p2) && getMoveCount() == 0) {
-                mat[p.getRow()][p.getColumn()] = true;
-            }
-
-            // Left-Up
-
-            p.setValues(position.getRow() + 1, position.getColumn() + 1);
-            if (getBoard().positionExists(p) && canMove(p) && isThereOpponentPiece(p)) {
-                mat[p.getRow()][p.getColumn()] = true;
+            int two = one + forward;
+            if (getMoveCount() == 0 && two >= 0 && two < 64 && (empty & 1L << two) != 0) {
+                mask |= 1L << two;
             }
+        }
 
-            // Right-Up
-
-            p.setValues(position.getRow() + 1, position.getColumn() - 1);
-            if (getBoard().positionExists(p) && canMove(p) && isThereOpponentPiece(p)) {
-                mat[p.getRow()][p.getColumn()] = true;
+        // En passant
+        ChessPiece vulnerable = chessMatch.getEnPassantVulnerability();
+        if (vulnerable != null && vulnerable.getColor() != getColor()) {
+            int column = square & 7;
+            if (column > 0 && getBoard().pieceAt(square - 1) == vulnerable) {
+                mask |= 1L << square - 1 + forward;
             }
-
-            // En passant
-            if (position.getRow() == 4) {
-                Position left = new Position(position.getRow(), position.getColumn() - 1);
-                if (getBoard().positionExists(left) && isThereOpponentPiece(left) && getBoard().getPiece(left) == chessMatch.getEnPassantVulnerability()) {
-                    mat[left.getRow() + 1][left.getColumn()] = true;
-                }
-                Position right = new Position(position.getRow(), position.getColumn() + 1);
-                if (getBoard().positionExists(right) && isThereOpponentPiece(right) && getBoard().getPiece(right) == chessMatch.getEnPassantVulnerability()) {
-                    mat[right.getRow() + 1][right.getColumn()] = true;
-                }
+            if (column < 7 && getBoard().pieceAt(square + 1) == vulnerable) {
+                mask |= 1L << square + 1 + forward;
             }
         }
-        return mat;
+        return mask;
     }
-
-
 }
@@ -0,0 +1,39 @@
+package com.company.chess.rules;
+
+import com.company.boardgame.BoardException;
+import com.company.boardgame.MoveList;
+
+// A playable position described by bitboards. ChessMatch and CompactMatch both implement it, so move
+// generation, perft and FEN export work the same on either.
+public interface BitboardPosition {
+
+    long getBitboard(PieceType type, Color color);
+
+    long getOccupancy(Color color);
+
+    long getOccupancy();
+
+    Color getCurrentPlayer();
+
+    int getCastlingRights();
+
+    // Square of the pawn that can be taken en passant, or -1.
+    int getEnPassantSquare();
+
+    int getHalfmoveClock();
+
+    int getFullmoveNumber();
+
+    long getZobristKey();
+
+    void generateLegalMoves(MoveList moves) throws BoardException;
+
+    // Only the legal captures, en passant included, and promotions.
+    void generateLegalCaptures(MoveList moves) throws BoardException;
+
+    void makeMove(int move) throws BoardException;
+
+    void undoMove() throws BoardException;
+
+    BitboardPosition copy() throws BoardException;
+}
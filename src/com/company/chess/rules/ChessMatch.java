@@ -2,35 +2,203 @@ package com.company.chess.rules;
 
 import com.company.boardgame.Board;
 import com.company.boardgame.BoardException;
+import com.company.boardgame.MoveList;
 import com.company.boardgame.Piece;
-import com.company.boardgame.Position;
 import com.company.chess.pieces.*;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.stream.Collectors;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
-public class ChessMatch {
+public class ChessMatch implements BitboardPosition {
+
+    public static final int WHITE_KINGSIDE = 1;
+    public static final int WHITE_QUEENSIDE = 2;
+    public static final int BLACK_KINGSIDE = 4;
+    public static final int BLACK_QUEENSIDE = 8;
+
+    private static final int ENCODING_MAGIC = 0x43484d53;
+    private static final int ENCODING_VERSION = 1;
+    private static final int WHITE_TO_MOVE = 1;
+    private static final int CHECK = 2;
+    private static final int CHECKMATE = 4;
+    private static final int STALEMATE = 8;
 
     private Board board;
     private int turn;
     private Color currentPlayer;
     private boolean check;
     private boolean checkmate;
+    private boolean stalemate;
     private ChessPiece enPassantVulnerability;
     private ChessPiece promoted;
+    private int lastMove;
+    private int castlingRights;
+    private int halfmoveClock;
+    private long zobristKey;
+    private long enPassantKey;
+
+    private PieceRegistry registry = new PieceRegistry();
+    private MoveList moveBuffer = new MoveList();
+    private MoveGenerator moveGenerator = new MoveGenerator(this);
 
-    private List<Piece> piecesOnBoard = new ArrayList<>();
-    private List<Piece> capturedPieces = new ArrayList<>();
+    private int historySize;
+    private int[] historyMoves = new int[64];
+    private Piece[] historyCaptured = new Piece[64];
+    private ChessPiece[] historyEnPassant = new ChessPiece[64];
+    private ChessPiece[] historyPromoted = new ChessPiece[64];
+    private boolean[] historyCheck = new boolean[64];
+    private int[] historyHalfmove = new int[64];
 
 
     public ChessMatch() throws BoardException, ChessException {
-        board = new Board(8, 8);
-        turn = 1;
-        currentPlayer = Color.WHITE;
+        this(Color.WHITE, 1);
         initialSetup();
     }
 
+    private ChessMatch(Color currentPlayer, int turn) throws BoardException {
+        board = new Board(8, 8, PieceType.values().length * Color.values().length, Color.values().length);
+        this.turn = turn;
+        this.currentPlayer = currentPlayer;
+        if (currentPlayer == Color.BLACK) {
+            zobristKey ^= Zobrist.side();
+        }
+    }
+
+    public static ChessMatch fromFen(String fen) throws ChessException {
+        PositionBuffer position = new PositionBuffer();
+        if (!new FenReader(fen).next(position)) {
+            throw new ChessException("Invalid FEN: " + fen);
+        }
+        return fromPosition(position);
+    }
+
+    public static ChessMatch fromPosition(PositionBuffer position) throws ChessException {
+        for (Color color : Color.values()) {
+            if (Long.bitCount(position.getBitboard(PieceType.KING, color)) != 1) {
+                throw new ChessException("Invalid position: each side needs exactly one king.");
+            }
+        }
+        try {
+            Color player = position.getCurrentPlayer();
+            ChessMatch match = new ChessMatch(player, (position.getFullmoveNumber() - 1) * 2 + (player == Color.WHITE ? 1 : 2));
+            match.setupFromPosition(position);
+            return match;
+        } catch (BoardException e) {
+            throw new ChessException("Invalid position: " + e.getMessage());
+        }
+    }
+
+    public static ChessMatch fromSnapshot(PositionSnapshot snapshot) throws BoardException {
+        ChessMatch match = new ChessMatch(snapshot.getCurrentPlayer(), snapshot.getTurn());
+        match.setupFromSnapshot(snapshot);
+        return match;
+    }
+
+    public PositionSnapshot snapshot() {
+        return new PositionSnapshot(this);
+    }
+
+    // Binary form of the whole match but its undo history: MAGIC, VERSION, flags (side to move, check, checkmate,
+    // stalemate), turn, halfmove clock, last move, en passant and promoted squares + 1, the occupancy, one byte
+    // per occupied square with the bitboard index and the move count (15 and up is followed by the exact count
+    // as a short), and the bitboard index of each captured piece in capture order. Castling rights and the
+    // Zobrist key follow from these, so they are not stored. A position takes 50 to 80 bytes.
+    public void writeTo(ByteBuffer buffer) {
+        buffer.putInt(ENCODING_MAGIC).put((byte) ENCODING_VERSION);
+        buffer.put((byte) ((currentPlayer == Color.WHITE ? WHITE_TO_MOVE : 0) | (check ? CHECK : 0)
+                | (checkmate ? CHECKMATE : 0) | (stalemate ? STALEMATE : 0)));
+        buffer.putShort((short) turn).putShort((short) halfmoveClock).putShort((short) lastMove);
+        buffer.put((byte) (enPassantVulnerability == null ? 0 : enPassantVulnerability.getSquare() + 1));
+        // The last promoted piece may since have been captured
+        buffer.put((byte) (promoted == null || promoted.getSlot() < 0 ? 0 : promoted.getSquare() + 1));
+        long occupied = board.getOccupied();
+        buffer.putLong(occupied);
+        while (occupied != 0) {
+            ChessPiece p = (ChessPiece) board.pieceAt(Long.numberOfTrailingZeros(occupied));
+            int count = Math.min(p.getMoveCount(), 15);
+            buffer.put((byte) (p.getBitboardIndex() | count << 4));
+            if (count == 15) {
+                buffer.putShort((short) p.getMoveCount());
+            }
+            occupied &= occupied - 1;
+        }
+        buffer.put((byte) registry.getCapturedCount());
+        for (int i = 0; i < registry.getCapturedCount(); i++) {
+            buffer.put((byte) registry.getCaptured(i).getBitboardIndex());
+        }
+    }
+
+    public int getEncodedSize() {
+        int size = 23 + Long.bitCount(board.getOccupied()) + registry.getCapturedCount();
+        long occupied = board.getOccupied();
+        while (occupied != 0) {
+            if (((ChessPiece) board.pieceAt(Long.numberOfTrailingZeros(occupied))).getMoveCount() >= 15) {
+                size += 2;
+            }
+            occupied &= occupied - 1;
+        }
+        return size;
+    }
+
+    // Reads a match written by writeTo(). Its undo history starts empty, as after fromFen().
+    public static ChessMatch readFrom(ByteBuffer buffer) throws ChessException {
+        try {
+            if (buffer.getInt() != ENCODING_MAGIC) {
+                throw new ChessException("Not an encoded match.");
+            }
+            if (buffer.get() != ENCODING_VERSION) {
+                throw new ChessException("Unsupported match encoding version.");
+            }
+            int flags = buffer.get();
+            int turn = buffer.getShort() & 0xFFFF;
+            ChessMatch match = new ChessMatch((flags & WHITE_TO_MOVE) != 0 ? Color.WHITE : Color.BLACK, turn);
+            match.setupFromBuffer(buffer, flags);
+            return match;
+        } catch (BufferUnderflowException e) {
+            throw new ChessException("Encoded match is truncated.");
+        } catch (BoardException e) {
+            throw new ChessException("Invalid encoded match: " + e.getMessage());
+        }
+    }
+
+    public String toFen() {
+        PositionBuffer position = new PositionBuffer();
+        position.load(this);
+        return position.toFen();
+    }
+
+    public ChessMatch copy() throws BoardException {
+        ChessMatch copy = new ChessMatch(currentPlayer, turn);
+        for (int square = 0; square < 64; square++) {
+            ChessPiece p = (ChessPiece) board.pieceAt(square);
+            if (p != null) {
+                ChessPiece c = copy.newPiece(p.getType(), p.getColor());
+                c.setMoveCount(p.getMoveCount());
+                copy.placePiece(c, square);
+                copy.registry.add(c);
+                if (p == promoted) {
+                    copy.promoted = c;
+                }
+            }
+        }
+        // Its key depends on every enemy pawn, so it is set once they are all placed
+        if (enPassantVulnerability != null) {
+            copy.setEnPassantVulnerability((ChessPiece) copy.board.pieceAt(enPassantVulnerability.getSquare()));
+        }
+        for (int i = 0; i < registry.getCapturedCount(); i++) {
+            ChessPiece p = registry.getCaptured(i);
+            copy.registry.pushCaptured(copy.newPiece(p.getType(), p.getColor()));
+        }
+        copy.updateCastlingRights();
+        copy.halfmoveClock = halfmoveClock;
+        copy.lastMove = lastMove;
+        copy.check = check;
+        copy.checkmate = checkmate;
+        copy.stalemate = stalemate;
+        return copy;
+    }
+
     public int getTurn() {
         return turn;
     }
@@ -43,6 +211,10 @@ public class ChessMatch {
         return checkmate;
     }
 
+    public boolean getStalemate() {
+        return stalemate;
+    }
+
     public Color getCurrentPlayer() {
         return currentPlayer;
     }
@@ -51,62 +223,121 @@ public class ChessMatch {
         ChessPiece[][] mat = new ChessPiece[board.getRows()][board.getColumns()];
         for (int i = 0; i < board.getRows(); i++) {
             for (int j = 0; j < board.getColumns(); j++) {
-                mat[i][j] = (ChessPiece) board.getPiece(i, j);
+                mat[i][j] = (ChessPiece) board.pieceAt(i * board.getColumns() + j);
             }
         }
         return mat;
     }
 
+    public long getBitboard(PieceType type, Color color) {
+        return board.getBitboard(ChessPiece.bitboardIndex(type, color));
+    }
+
+    public long getOccupancy(Color color) {
+        return board.getOwnerBitboard(color.getValue());
+    }
+
+    public long getOccupancy() {
+        return board.getOccupied();
+    }
+
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    public int getFullmoveNumber() {
+        return (turn + 1) / 2;
+    }
+
+    public int getCastlingRights() {
+        return castlingRights;
+    }
+
+    public long getZobristKey() {
+        return zobristKey;
+    }
+
     public ChessPiece getEnPassantVulnerability() {
         return enPassantVulnerability;
     }
 
+    public int getEnPassantSquare() {
+        return enPassantVulnerability == null ? -1 : enPassantVulnerability.getSquare();
+    }
+
+    // The last move played, packed as in MoveList, with the promotion type in its flags; 0 before any move.
+    public int getLastMove() {
+        return lastMove;
+    }
+
     public ChessPiece getPromoted() {
         return promoted;
     }
 
     public ChessPiece performChessMove(ChessPosition sourcePosition, ChessPosition targetPosition) throws BoardException, ChessException {
-        Position source = sourcePosition.toPosition();
-        Position target = targetPosition.toPosition();
+        int source = sourcePosition.getSquare();
+        int target = targetPosition.getSquare();
         validateSourcePosition(source);
         validateTargetPosition(source, target);
-        Piece capturedPiece = makeMove(source, target);
-
-        if (testCheck(currentPlayer)) {
-            undoMove(source, target, capturedPiece);
+        if (!isLegalMove(source, target)) {
             throw new ChessException("You cannot put yourself in check.");
         }
+        Piece capturedPiece = makeMove(source, target);
 
-        ChessPiece movedPiece = (ChessPiece) board.getPiece(target);
+        ChessPiece movedPiece = (ChessPiece) board.pieceAt(target);
 
         // Promotion
         promoted = null;
         if (movedPiece instanceof Pawn) {
-            if (movedPiece.getColor() == Color.WHITE && target.getRow() == 0 || movedPiece.getColor() == Color.BLACK && target.getRow() == 7) {
-                promoted = (ChessPiece) board.getPiece(target);
+            if (movedPiece.getColor() == Color.WHITE && target >>> 3 == 0 || movedPiece.getColor() == Color.BLACK && target >>> 3 == 7) {
+                promoted = (ChessPiece) board.pieceAt(target);
                 promoted = replacePromotedPiece("Q");
             }
         }
+        lastMove = MoveList.move(source, target, promoted == null ? 0 : PieceType.QUEEN.getValue());
 
 
-        check = testCheck(opponent(currentPlayer));
-
-        if (testCheckmate(opponent(currentPlayer))) {
-            checkmate = true;
-        } else { /// Só passa o turno de não for mate.
-            nextTurn();
-        }
+        check = updateCheck(source, target, (ChessPiece) board.pieceAt(target), capturedPiece);
 
         // En passant
-        if (movedPiece instanceof Pawn && (target.getRow() == source.getRow() - 2 || target.getRow() == source.getRow() + 2)) {
-            enPassantVulnerability = movedPiece;
+        if (movedPiece instanceof Pawn && Math.abs(target - source) == 16) {
+            setEnPassantVulnerability(movedPiece);
         } else {
-            enPassantVulnerability = null;
+            setEnPassantVulnerability(null);
         }
 
+        moveBuffer.clear();
+        moveGenerator.generate(opponent(currentPlayer), moveBuffer);
+        if (moveBuffer.isEmpty()) {
+            checkmate = check;
+            stalemate = !check;
+        }
+        // The turn passes on mate too, so the mated side is the one to move, as in FEN and after makeMove()
+        nextTurn();
+
         return (ChessPiece) capturedPiece;
     }
 
+    public void generateLegalMoves(MoveList moves) throws BoardException {
+        moveGenerator.generate(currentPlayer, moves);
+    }
+
+    public void generateLegalCaptures(MoveList moves) throws BoardException {
+        moveGenerator.generate(currentPlayer, moves, true);
+    }
+
+    private boolean isLegalMove(int from, int to) {
+        moveBuffer.clear();
+        moveGenerator.generate(currentPlayer, moveBuffer);
+        for (int i = 0; i < moveBuffer.size(); i++) {
+            int move = moveBuffer.get(i);
+            if (MoveList.from(move) == from && MoveList.to(move) == to) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public ChessPiece replacePromotedPiece(String type) throws ChessException, BoardException {
         if (promoted == null) {
             throw new IllegalStateException("No piece is able to promote.");
@@ -115,16 +346,43 @@ public class ChessMatch {
             return promoted;
         }
 
-        Position pos = promoted.getChessPosition().toPosition();
-        Piece p = board.removePiece(pos);
-        piecesOnBoard.remove(p);
+        int square = promoted.getSquare();
+        registry.remove((ChessPiece) removePiece(square));
 
         ChessPiece newPiece = newPiece(type, promoted.getColor());
-        board.placePiece(newPiece, pos);
-        piecesOnBoard.add(newPiece);
+        placePiece(newPiece, square);
+        registry.add(newPiece);
+        if (MoveList.flags(lastMove) != 0) {
+            lastMove = MoveList.move(MoveList.from(lastMove), MoveList.to(lastMove), newPiece.getType().getValue());
+        }
         return newPiece;
     }
 
+    private ChessPiece newPiece(PieceType type, Color color) {
+        switch (type) {
+            case PAWN:
+                return new Pawn(board, color, this);
+            case KNIGHT:
+                return new Knight(board, color);
+            case BISHOP:
+                return new Bishop(board, color);
+            case ROOK:
+                return new Rook(board, color);
+            case QUEEN:
+                return new Queen(board, color);
+            default:
+                return new King(board, color, this);
+        }
+    }
+
+    private ChessPiece newPiece(int bitboardIndex) throws ChessException {
+        if (bitboardIndex >= PieceType.values().length * Color.values().length) {
+            throw new ChessException("Invalid encoded match: unknown piece.");
+        }
+        int types = PieceType.values().length;
+        return newPiece(PieceType.fromValue(bitboardIndex % types), bitboardIndex < types ? Color.BLACK : Color.WHITE);
+    }
+
     private ChessPiece newPiece(String type, Color color) {
         if (type.equals("B")) return new Bishop(board, color);
         if (type.equals("N")) return new Knight(board, color);
@@ -132,115 +390,162 @@ public class ChessMatch {
         return new Queen(board, color);
     }
 
-    private Piece makeMove(Position source, Position target) throws BoardException {
-        ChessPiece p = (ChessPiece) board.removePiece(source);
+    public void makeMove(int move) throws BoardException {
+        if (historySize == historyMoves.length) {
+            int capacity = historySize * 2;
+            historyMoves = Arrays.copyOf(historyMoves, capacity);
+            historyCaptured = Arrays.copyOf(historyCaptured, capacity);
+            historyEnPassant = Arrays.copyOf(historyEnPassant, capacity);
+            historyPromoted = Arrays.copyOf(historyPromoted, capacity);
+            historyCheck = Arrays.copyOf(historyCheck, capacity);
+            historyHalfmove = Arrays.copyOf(historyHalfmove, capacity);
+        }
+        int from = MoveList.from(move);
+        int to = MoveList.to(move);
+        historyMoves[historySize] = move;
+        historyEnPassant[historySize] = enPassantVulnerability;
+        historyCheck[historySize] = check;
+        historyHalfmove[historySize] = halfmoveClock;
+        historyCaptured[historySize] = makeMove(from, to);
+
+        ChessPiece movedPiece = (ChessPiece) board.pieceAt(to);
+        if (MoveList.flags(move) != 0) {
+            removePiece(to);
+            registry.remove(movedPiece);
+            ChessPiece newPiece = newPiece(PieceType.fromValue(MoveList.flags(move)), movedPiece.getColor());
+            placePiece(newPiece, to);
+            registry.add(newPiece);
+            historyPromoted[historySize] = movedPiece;
+        }
+        historySize++;
+        lastMove = move;
+
+        setEnPassantVulnerability(movedPiece instanceof Pawn && Math.abs(to - from) == 16 ? movedPiece : null);
+        nextTurn();
+        check = testCheck(currentPlayer);
+    }
+
+    public void undoMove() throws BoardException {
+        historySize--;
+        int move = historyMoves[historySize];
+        int source = MoveList.from(move);
+        int target = MoveList.to(move);
+        turn--;
+        currentPlayer = opponent(currentPlayer);
+        zobristKey ^= Zobrist.side();
+        enPassantVulnerability = historyEnPassant[historySize];
+        check = historyCheck[historySize];
+        halfmoveClock = historyHalfmove[historySize];
+
+        ChessPiece pawn = historyPromoted[historySize];
+        if (pawn != null) {
+            registry.remove((ChessPiece) removePiece(target));
+            placePiece(pawn, target);
+            registry.add(pawn);
+        }
+        undoMove(source, target, historyCaptured[historySize]);
+        updateEnPassantKey();
+
+        historyCaptured[historySize] = null;
+        historyEnPassant[historySize] = null;
+        historyPromoted[historySize] = null;
+        lastMove = historySize > 0 ? historyMoves[historySize - 1] : 0;
+    }
+
+    private Piece makeMove(int source, int target) {
+        ChessPiece p = (ChessPiece) removePiece(source);
         p.increaseMoveCount();
 
-        Piece captured = board.removePiece(target);
-        board.placePiece(p, target);
+        Piece captured = removePiece(target);
+        placePiece(p, target);
+        halfmoveClock = p instanceof Pawn || captured != null ? 0 : halfmoveClock + 1;
 
         if (captured != null) {
-            piecesOnBoard.remove(captured);
-            capturedPieces.add(captured);
+            registry.remove((ChessPiece) captured);
+            registry.pushCaptured((ChessPiece) captured);
         }
 
         // Castling
 
         // Kingside
-        if (p instanceof King && target.getColumn() == source.getColumn() + 2) {
-            Position sourceRook = new Position(source.getRow(), source.getColumn() + 3);
-            Position targetRook = new Position(source.getRow(), source.getColumn() + 1);
-            ChessPiece rook = (ChessPiece) board.removePiece(sourceRook);
-            board.placePiece(rook, targetRook);
+        if (p instanceof King && target == source + 2) {
+            ChessPiece rook = (ChessPiece) removePiece(source + 3);
+            placePiece(rook, source + 1);
             rook.increaseMoveCount();
         }
 
         // Queenside
-        if (p instanceof King && target.getColumn() == source.getColumn() - 2) {
-            Position sourceRook2 = new Position(source.getRow(), source.getColumn() - 4);
-            Position targetRook2 = new Position(source.getRow(), source.getColumn() - 1);
-            ChessPiece rook2 = (ChessPiece) board.removePiece(sourceRook2);
-            board.placePiece(rook2, targetRook2);
+        if (p instanceof King && target == source - 2) {
+            ChessPiece rook2 = (ChessPiece) removePiece(source - 4);
+            placePiece(rook2, source - 1);
             rook2.increaseMoveCount();
         }
 
         // En passant
         if (p instanceof Pawn) {
-            if (source.getColumn() != target.getColumn() && captured == null) {
-                Position pawnPos;
-                if (p.getColor() == Color.WHITE) {
-                    pawnPos = new Position(target.getRow() + 1, target.getColumn());
-                } else {
-                    pawnPos = new Position(target.getRow() - 1, target.getColumn());
-                }
-                captured = board.removePiece(pawnPos);
-                capturedPieces.add(captured);
-                piecesOnBoard.remove(captured);
+            if ((source & 7) != (target & 7) && captured == null) {
+                int pawnSquare = p.getColor() == Color.WHITE ? target + 8 : target - 8;
+                captured = removePiece(pawnSquare);
+                registry.remove((ChessPiece) captured);
+                registry.pushCaptured((ChessPiece) captured);
             }
         }
 
+        if (castlingRights != 0) {
+            updateCastlingRights();
+        }
         return captured;
     }
 
-    private void undoMove(Position source, Position target, Piece capturedPiece) throws BoardException {
-        ChessPiece p = (ChessPiece) board.removePiece(target);
+    private void undoMove(int source, int target, Piece capturedPiece) {
+        ChessPiece p = (ChessPiece) removePiece(target);
         p.decreaseMoveCount();
-        board.placePiece(p, source);
+        placePiece(p, source);
 
         if (capturedPiece != null) {
-            board.placePiece(capturedPiece, target);
-            capturedPieces.remove(capturedPiece);
-            piecesOnBoard.add(capturedPiece);
+            placePiece(capturedPiece, target);
+            registry.add(registry.popCaptured((ChessPiece) capturedPiece));
         }
 
         // Kingside
-        if (p instanceof King && target.getColumn() == source.getColumn() + 2) {
-            Position sourceRook = new Position(source.getRow(), source.getColumn() + 3);
-            Position targetRook = new Position(source.getRow(), source.getColumn() + 1);
-            ChessPiece rook = (ChessPiece) board.removePiece(targetRook);
-            board.placePiece(rook, sourceRook);
+        if (p instanceof King && target == source + 2) {
+            ChessPiece rook = (ChessPiece) removePiece(source + 1);
+            placePiece(rook, source + 3);
             rook.decreaseMoveCount();
         }
 
         // Queenside
-        if (p instanceof King && target.getColumn() == source.getColumn() - 2) {
-            Position sourceRook2 = new Position(source.getRow(), source.getColumn() - 4);
-            Position targetRook2 = new Position(source.getRow(), source.getColumn() - 1);
-            ChessPiece rook2 = (ChessPiece) board.removePiece(targetRook2);
-            board.placePiece(rook2, sourceRook2);
+        if (p instanceof King && target == source - 2) {
+            ChessPiece rook2 = (ChessPiece) removePiece(source - 1);
+            placePiece(rook2, source - 4);
             rook2.decreaseMoveCount();
         }
 
         // En passant
         if (p instanceof Pawn) {
-            if (source.getColumn() != target.getColumn() && capturedPiece == enPassantVulnerability) {
-                ChessPiece pawn = (ChessPiece) board.removePiece(target);
-                Position pawnPos;
-
-                if (p.getColor() == Color.WHITE) {
-                    pawnPos = new Position(3, target.getColumn());
-                } else {
-                    pawnPos = new Position(4, target.getColumn());
-                }
-                board.placePiece(pawn, pawnPos);
+            if ((source & 7) != (target & 7) && capturedPiece == enPassantVulnerability) {
+                ChessPiece pawn = (ChessPiece) removePiece(target);
+                placePiece(pawn, (p.getColor() == Color.WHITE ? 24 : 32) + (target & 7));
             }
         }
+
+        updateCastlingRights();
     }
 
-    private void validateSourcePosition(Position position) throws BoardException, ChessException {
-        if (!board.thereIsAPiece(position)) {
+    private void validateSourcePosition(int square) throws ChessException {
+        if (!board.isOccupied(square)) {
             throw new ChessException("There is no piece at source position.");
         }
-        if (currentPlayer != ((ChessPiece) board.getPiece(position)).getColor()) {
+        if ((getOccupancy(currentPlayer) & 1L << square) == 0) {
             throw new ChessException("You cannot move a piece that is not yours.");
         }
-        if (!board.getPiece(position).isThereAnyPossibleMove()) {
+        if (!((ChessPiece) board.pieceAt(square)).isThereAnyPossibleMove()) {
             throw new ChessException("There is no possible moves for chosen piece.");
         }
     }
 
-    private void validateTargetPosition(Position source, Position target) throws BoardException, ChessException {
-        if (!board.getPiece(source).possibleMove(target)) {
+    private void validateTargetPosition(int source, int target) throws ChessException {
+        if ((((ChessPiece) board.pieceAt(source)).moveMask() & 1L << target) == 0) {
             throw new ChessException("Chosen piece cannot move to target position.");
         }
     }
@@ -248,65 +553,235 @@ public class ChessMatch {
     private void nextTurn() {
         turn++;
         currentPlayer = (currentPlayer.equals(Color.WHITE)) ? Color.BLACK : Color.WHITE;
+        zobristKey ^= Zobrist.side();
+    }
+
+    private void placePiece(Piece piece, int square) {
+        board.put(piece, square);
+        zobristKey ^= Zobrist.piece(piece.getBitboardIndex(), square);
+    }
+
+    private Piece removePiece(int square) {
+        Piece piece = board.take(square);
+        if (piece != null) {
+            zobristKey ^= Zobrist.piece(piece.getBitboardIndex(), square);
+        }
+        return piece;
+    }
+
+    private void setEnPassantVulnerability(ChessPiece pawn) {
+        enPassantVulnerability = pawn;
+        updateEnPassantKey();
+    }
+
+    // The file is remembered with the key, since the vulnerable pawn may already have been captured.
+    private void updateEnPassantKey() {
+        zobristKey ^= enPassantKey;
+        enPassantKey = enPassantVulnerability == null ? 0L : Zobrist.enPassant(enPassantVulnerability.getSquare(),
+                getBitboard(PieceType.PAWN, opponent(enPassantVulnerability.getColor())));
+        zobristKey ^= enPassantKey;
+    }
+
+    private void updateCastlingRights() {
+        int rights = testCastling(Color.WHITE, WHITE_KINGSIDE, WHITE_QUEENSIDE) | testCastling(Color.BLACK, BLACK_KINGSIDE, BLACK_QUEENSIDE);
+        zobristKey ^= Zobrist.castling(castlingRights) ^ Zobrist.castling(rights);
+        castlingRights = rights;
+    }
+
+    // Mirrors the King's castling test: an unmoved king with an unmoved rook three or four columns away.
+    private int testCastling(Color color, int kingside, int queenside) {
+        ChessPiece king = registry.king(color);
+        if (king == null || king.getMoveCount() != 0) {
+            return 0;
+        }
+        int square = king.getSquare();
+        int rights = 0;
+        long rooks = getBitboard(PieceType.ROOK, color);
+        if ((square & 7) + 3 < 8 && (rooks & 1L << square + 3) != 0 && ((ChessPiece) board.pieceAt(square + 3)).getMoveCount() == 0) {
+            rights |= kingside;
+        }
+        if ((square & 7) - 4 >= 0 && (rooks & 1L << square - 4) != 0 && ((ChessPiece) board.pieceAt(square - 4)).getMoveCount() == 0) {
+            rights |= queenside;
+        }
+        return rights;
     }
 
     private Color opponent(Color color) {
         return color.equals(Color.WHITE) ? Color.BLACK : Color.WHITE;
     }
 
-    private ChessPiece king(Color color) {
-        List<Piece> list = piecesOnBoard.stream().filter(x -> ((ChessPiece) x).getColor() == color).collect(Collectors.toList());
-        for (Piece p : list) {
-            if (p instanceof King) {
-                return (ChessPiece) p;
+    private int kingSquare(Color color) {
+        long king = getBitboard(PieceType.KING, color);
+        if (king == 0) {
+            throw new IllegalStateException("There is no " + color + " king on the board.");
+        }
+        return Long.numberOfTrailingZeros(king);
+    }
+
+    public long attackersTo(int square, Color color, long occupied) {
+        return MoveGenerator.attackersTo(this, square, color, occupied);
+    }
+
+    public boolean isSquareAttacked(int square, Color color) {
+        return attackersTo(square, color, board.getOccupied()) != 0;
+    }
+
+    private boolean testCheck(Color color) {
+        return isSquareAttacked(kingSquare(color), opponent(color));
+    }
+
+    // Only the moved piece and the line it left can start a check; castling and en passant move a second piece.
+    private boolean updateCheck(int from, int to, ChessPiece movedPiece, Piece capturedPiece) {
+        boolean castling = movedPiece instanceof King && Math.abs(to - from) == 2;
+        boolean enPassant = movedPiece instanceof Pawn && capturedPiece != null && capturedPiece == enPassantVulnerability;
+        if (castling || enPassant) {
+            return testCheck(opponent(currentPlayer));
+        }
+
+        int kingSquare = kingSquare(opponent(currentPlayer));
+        long occupied = board.getOccupied();
+        if ((AttackTables.attacks(movedPiece.getType(), currentPlayer, to, occupied) & 1L << kingSquare) != 0) {
+            return true;
+        }
+        long line = AttackTables.line(kingSquare, from);
+        if (line == 0) {
+            return false;
+        }
+        long queens = getBitboard(PieceType.QUEEN, currentPlayer);
+        if ((AttackTables.rookAttacks(kingSquare, 0L) & 1L << from) != 0) {
+            return (AttackTables.rookAttacks(kingSquare, occupied) & line & (getBitboard(PieceType.ROOK, currentPlayer) | queens)) != 0;
+        }
+        return (AttackTables.bishopAttacks(kingSquare, occupied) & line & (getBitboard(PieceType.BISHOP, currentPlayer) | queens)) != 0;
+    }
+
+    private void setupFromPosition(PositionBuffer position) {
+        for (Color color : Color.values()) {
+            for (PieceType type : PieceType.values()) {
+                long pieces = position.getBitboard(type, color);
+                while (pieces != 0) {
+                    int square = Long.numberOfTrailingZeros(pieces);
+                    ChessPiece piece = newPiece(type, color);
+                    placePiece(piece, square);
+                    registry.add(piece);
+                    pieces &= pieces - 1;
+                }
             }
         }
-        throw new IllegalStateException("There is no " + color + " king on the board.");
+        setupMoveCounts(position.getCastlingRights());
+        int square = position.getEnPassantSquare();
+        if (square >= 0 && (getBitboard(PieceType.PAWN, opponent(currentPlayer)) & 1L << square) != 0) {
+            setEnPassantVulnerability((ChessPiece) board.pieceAt(square));
+        }
+        halfmoveClock = position.getHalfmoveClock();
+
+        check = testCheck(currentPlayer);
+        moveBuffer.clear();
+        moveGenerator.generate(currentPlayer, moveBuffer);
+        checkmate = check && moveBuffer.isEmpty();
+        stalemate = !check && moveBuffer.isEmpty();
     }
 
-    private boolean testCheck(Color color) throws ChessException, BoardException {
-        Position kingPos = king(color).getChessPosition().toPosition();
-        List<Piece> opponentPieces = piecesOnBoard.stream().filter(x -> ((ChessPiece) x).getColor() == opponent(color)).collect(Collectors.toList());
-        for (Piece p : opponentPieces) {
-            boolean[][] mat = p.possibleMoves();
-            if (mat[kingPos.getRow()][kingPos.getColumn()]) {
-                return true;
+    private void setupFromSnapshot(PositionSnapshot snapshot) {
+        for (int square = 0; square < 64; square++) {
+            PieceType type = snapshot.getPieceType(square);
+            if (type != null) {
+                ChessPiece piece = newPiece(type, snapshot.getColor(square));
+                placePiece(piece, square);
+                registry.add(piece);
             }
         }
-        return false;
+        setupMoveCounts(snapshot.getCastlingRights());
+        int square = snapshot.getEnPassantSquare();
+        if (square >= 0) {
+            setEnPassantVulnerability((ChessPiece) board.pieceAt(square));
+        }
+        halfmoveClock = snapshot.getHalfmoveClock();
+        // Taken as recorded: after a mate the turn does not pass, so testing the side to move would miss it.
+        check = snapshot.getCheck();
+        checkmate = snapshot.getCheckmate();
+        stalemate = snapshot.getStalemate();
     }
 
-    private boolean testCheckmate(Color color) throws ChessException, BoardException {
-        if (!testCheck(color)) {
-            return false;
+    private void setupFromBuffer(ByteBuffer buffer, int flags) throws ChessException {
+        halfmoveClock = buffer.getShort() & 0xFFFF;
+        lastMove = buffer.getShort() & 0xFFFF;
+        int enPassantSquare = buffer.get() - 1;
+        int promotedSquare = buffer.get() - 1;
+        long occupied = buffer.getLong();
+        while (occupied != 0) {
+            int code = buffer.get() & 0xFF;
+            int count = code >>> 4;
+            ChessPiece piece = newPiece(code & 15);
+            piece.setMoveCount(count == 15 ? buffer.getShort() & 0xFFFF : count);
+            placePiece(piece, Long.numberOfTrailingZeros(occupied));
+            registry.add(piece);
+            occupied &= occupied - 1;
         }
-        List<Piece> list = piecesOnBoard.stream().filter(x -> ((ChessPiece) x).getColor() == color).collect(Collectors.toList());
-        for (Piece p : list) {
-            boolean[][] mat = p.possibleMoves();
-            for (int i = 0; i < board.getRows(); i++) {
-                for (int j = 0; j < board.getColumns(); j++) {
-                    if (mat[i][j]) {
-                        Position source = ((ChessPiece) p).getChessPosition().toPosition();
-                        Position target = new Position(i, j);
-                        Piece capturedPiece = makeMove(source, target);
-                        boolean testCheck = testCheck(color);
-                        undoMove(source, target, capturedPiece);
-                        if (!testCheck) {
-                            return false;
-                        }
-                    }
-                }
+        int captured = buffer.get() & 0xFF;
+        for (int i = 0; i < captured; i++) {
+            registry.pushCaptured(newPiece(buffer.get() & 0xFF));
+        }
+        for (Color color : Color.values()) {
+            if (Long.bitCount(getBitboard(PieceType.KING, color)) != 1) {
+                throw new ChessException("Invalid encoded match: each side needs exactly one king.");
+            }
+        }
+        updateCastlingRights();
+        if (enPassantSquare >= 0) {
+            if ((getBitboard(PieceType.PAWN, opponent(currentPlayer)) & 1L << enPassantSquare) == 0) {
+                throw new ChessException("Invalid encoded match: no pawn to take en passant.");
             }
+            setEnPassantVulnerability((ChessPiece) board.pieceAt(enPassantSquare));
+        }
+        if (promotedSquare >= 0) {
+            promoted = (ChessPiece) board.pieceAt(promotedSquare);
+            if (promoted == null) {
+                throw new ChessException("Invalid encoded match: no promoted piece.");
+            }
+        }
+        check = (flags & CHECK) != 0;
+        checkmate = (flags & CHECKMATE) != 0;
+        stalemate = (flags & STALEMATE) != 0;
+    }
+
+    // Castling rights and double steps are derived from move counts, so pieces that lost them count as moved.
+    private void setupMoveCounts(int rights) {
+        for (int index = 0; index < PieceType.values().length * Color.values().length; index++) {
+            for (int slot = 0; slot < registry.count(index); slot++) {
+                setupMoveCount(registry.get(index, slot), rights);
+            }
+        }
+        updateCastlingRights();
+    }
+
+    private void setupMoveCount(ChessPiece piece, int rights) {
+        int square = piece.getSquare();
+        boolean white = piece.getColor() == Color.WHITE;
+        int kingside = white ? WHITE_KINGSIDE : BLACK_KINGSIDE;
+        int queenside = white ? WHITE_QUEENSIDE : BLACK_QUEENSIDE;
+        switch (piece.getType()) {
+            case PAWN:
+                piece.setMoveCount(square >>> 3 == (white ? 6 : 1) ? 0 : 1);
+                break;
+            case KING:
+                piece.setMoveCount((rights & (kingside | queenside)) != 0 ? 0 : 1);
+                break;
+            case ROOK:
+                boolean unmoved = square == (white ? 63 : 7) && (rights & kingside) != 0
+                        || square == (white ? 56 : 0) && (rights & queenside) != 0;
+                piece.setMoveCount(unmoved ? 0 : 1);
+                break;
+            default:
+                break;
         }
-        return true;
     }
 
-    private void placeNewPiece(char column, int row, ChessPiece piece) throws ChessException, BoardException {
-        board.placePiece(piece, new ChessPosition(column, row).toPosition());
-        piecesOnBoard.add(piece);
+    private void placeNewPiece(char column, int row, ChessPiece piece) throws ChessException {
+        placePiece(piece, new ChessPosition(column, row).getSquare());
+        registry.add(piece);
     }
 
-    private void initialSetup() throws BoardException, ChessException {
+    private void initialSetup() throws ChessException {
 
         placeNewPiece('a', 1, new Rook(board, Color.WHITE));
         placeNewPiece('b', 1, new Knight(board, Color.WHITE));
@@ -341,6 +816,7 @@ public class ChessMatch {
         placeNewPiece('f', 7, new Pawn(board, Color.BLACK, this));
         placeNewPiece('g', 7, new Pawn(board, Color.BLACK, this));
         placeNewPiece('h', 7, new Pawn(board, Color.BLACK, this));
+        updateCastlingRights();
     }
 
     public Board getBoard() {
@@ -1,7 +1,7 @@
 package com.company.chess.rules;
 
 import com.company.boardgame.Board;
-import com.company.boardgame.BoardException;
+import com.company.boardgame.MoveList;
 import com.company.boardgame.Piece;
 import com.company.boardgame.Position;
 
@@ -9,6 +9,7 @@ public abstract class ChessPiece extends Piece {
 
     private Color color;
     private int moveCount;
+    private int slot = -1;
 
     public ChessPiece(Board board, Color color) {
         super(board);
@@ -19,6 +20,22 @@ public abstract class ChessPiece extends Piece {
         return color;
     }
 
+    public abstract PieceType getType();
+
+    public static int bitboardIndex(PieceType type, Color color) {
+        return color.getValue() * PieceType.values().length + type.getValue();
+    }
+
+    @Override
+    public int getBitboardIndex() {
+        return bitboardIndex(getType(), color);
+    }
+
+    @Override
+    public int getOwnerIndex() {
+        return color.getValue();
+    }
+
     public void increaseMoveCount() {
         moveCount++;
     }
@@ -31,12 +48,69 @@ public abstract class ChessPiece extends Piece {
         return moveCount;
     }
 
-    public ChessPosition getChessPosition() throws ChessException {
-        return ChessPosition.fromPosition(position);
+    void setMoveCount(int moveCount) {
+        this.moveCount = moveCount;
+    }
+
+    // Index of the piece in its PieceRegistry list, -1 when it is not on the board.
+    int getSlot() {
+        return slot;
+    }
+
+    void setSlot(int slot) {
+        this.slot = slot;
+    }
+
+    public ChessPosition getChessPosition() {
+        return ChessPosition.of(getSquare());
+    }
+
+    public int getSquare() {
+        return getBoard().square(position);
+    }
+
+    public abstract long moveMask();
+
+    @Override
+    public boolean[][] possibleMoves() {
+        return toMatrix(moveMask());
+    }
+
+    @Override
+    public boolean possibleMove(Position position) {
+        return (moveMask() & 1L << getBoard().square(position)) != 0;
+    }
+
+    @Override
+    public boolean isThereAnyPossibleMove() {
+        return moveMask() != 0;
+    }
+
+    @Override
+    public void generateMoves(MoveList moves) {
+        int from = getSquare();
+        long mask = moveMask();
+        while (mask != 0) {
+            moves.add(MoveList.move(from, Long.numberOfTrailingZeros(mask)));
+            mask &= mask - 1;
+        }
+    }
+
+    protected long ownPieces() {
+        return getBoard().getOwnerBitboard(color.getValue());
+    }
+
+    protected long opponentPieces() {
+        return getBoard().getOccupied() & ~ownPieces();
     }
 
-    protected boolean isThereOpponentPiece(Position position) throws BoardException {
-        ChessPiece p = (ChessPiece) getBoard().getPiece(position);
-        return p != null && p.getColor() != color;
+    protected boolean[][] toMatrix(long mask) {
+        boolean[][] mat = new boolean[getBoard().getRows()][getBoard().getColumns()];
+        while (mask != 0) {
+            int square = Long.numberOfTrailingZeros(mask);
+            mat[square >>> 3][square & 7] = true;
+            mask &= mask - 1;
+        }
+        return mat;
     }
 }
@@ -4,18 +4,36 @@ import com.company.boardgame.Position;
 
 public class ChessPosition {
 
-    private char column;
-    private int row;
+    // One shared instance per square, indexed like the board: a8 is 0 and h1 is 63
+    private static final ChessPosition[] SQUARES = new ChessPosition[64];
 
-    public ChessPosition() {
+    static {
+        for (int square = 0; square < SQUARES.length; square++) {
+            SQUARES[square] = new ChessPosition((char) ('a' + (square & 7)), 8 - (square >>> 3), square);
+        }
     }
 
+    private final char column;
+    private final int row;
+    private final int square;
+
     public ChessPosition(char column, int row) throws ChessException {
         if (column < 'a' || column > 'h' || row < 1 || row > 8) {
             throw new ChessException("Error at Chess Position. Valid values are from a1 to h8.");
         }
         this.column = column;
         this.row = row;
+        this.square = (8 - row) * 8 + column - 'a';
+    }
+
+    private ChessPosition(char column, int row, int square) {
+        this.column = column;
+        this.row = row;
+        this.square = square;
+    }
+
+    public static ChessPosition of(int square) {
+        return SQUARES[square];
     }
 
     public char getColumn() {
@@ -26,12 +44,26 @@ public class ChessPosition {
         return row;
     }
 
+    public int getSquare() {
+        return square;
+    }
+
     protected Position toPosition() {
-        return new Position(8 - row, column - 'a');
+        return Position.of(8 - row, column - 'a');
+    }
+
+    protected static ChessPosition fromPosition(Position position) {
+        return SQUARES[position.getRow() * 8 + position.getColumn()];
     }
 
-    protected static ChessPosition fromPosition(Position position) throws ChessException {
-        return new ChessPosition((char) ('a' + position.getColumn()), 8 - position.getRow());
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ChessPosition && ((ChessPosition) o).square == square;
+    }
+
+    @Override
+    public int hashCode() {
+        return square;
     }
 
     @Override
@@ -11,4 +11,8 @@ public enum Color {
         this.value = value;
     }
 
+    public int getValue() {
+        return value;
+    }
+
 }
@@ -0,0 +1,343 @@
+package com.company.chess.rules;
+
+import com.company.boardgame.MoveList;
+
+import java.util.Arrays;
+
+// Flyweight counterpart of ChessMatch for hosting many games at once. There are no Piece objects and no Board:
+// each square holds a small int (bitboard index + 1, or 0 when empty) and the rest of the state is bitboards
+// and ints, so moves are played with a switch on the piece type instead of virtual calls. It takes the same
+// packed moves and gives the same Zobrist keys as ChessMatch.
+public final class CompactMatch implements BitboardPosition {
+
+    private static final int PAWN = 0;
+    private static final int ROOK = 3;
+    private static final int KING = 5;
+    private static final int TYPES = 6;
+
+    // Castling rights kept when a piece moves from or to each square
+    private static final int[] CASTLING_MASK = new int[64];
+
+    static {
+        Arrays.fill(CASTLING_MASK, 15);
+        CASTLING_MASK[0] &= ~ChessMatch.BLACK_QUEENSIDE;
+        CASTLING_MASK[4] &= ~(ChessMatch.BLACK_KINGSIDE | ChessMatch.BLACK_QUEENSIDE);
+        CASTLING_MASK[7] &= ~ChessMatch.BLACK_KINGSIDE;
+        CASTLING_MASK[56] &= ~ChessMatch.WHITE_QUEENSIDE;
+        CASTLING_MASK[60] &= ~(ChessMatch.WHITE_KINGSIDE | ChessMatch.WHITE_QUEENSIDE);
+        CASTLING_MASK[63] &= ~ChessMatch.WHITE_KINGSIDE;
+    }
+
+    private final byte[] squares = new byte[64];
+    private final long[] bitboards = new long[TYPES * 2];
+    private final long[] occupancy = new long[2];
+    private final MoveGenerator moveGenerator = new MoveGenerator(this);
+    private Color currentPlayer = Color.WHITE;
+    private int turn = 1;
+    private int castlingRights;
+    private int enPassantSquare = -1;
+    private int halfmoveClock;
+    // Everything but the en passant file, which depends on the pawns around it and is added by getZobristKey()
+    private long zobristKey;
+
+    // Per move: the move, the key before it, and the captured piece, castling rights, en passant square and
+    // halfmove clock packed into one long
+    private int historySize;
+    private int[] historyMoves = new int[16];
+    private long[] historyKeys = new long[16];
+    private long[] historyState = new long[16];
+
+    public CompactMatch() {
+        String backRank = "RNBQKBNR";
+        for (int column = 0; column < 8; column++) {
+            int type = "PNBRQK".indexOf(backRank.charAt(column));
+            put(code(type, Color.BLACK), column);
+            put(code(PAWN, Color.BLACK), 8 + column);
+            put(code(PAWN, Color.WHITE), 48 + column);
+            put(code(type, Color.WHITE), 56 + column);
+        }
+        setCastlingRights(ChessMatch.WHITE_KINGSIDE | ChessMatch.WHITE_QUEENSIDE | ChessMatch.BLACK_KINGSIDE | ChessMatch.BLACK_QUEENSIDE);
+    }
+
+    private CompactMatch(CompactMatch other) {
+        System.arraycopy(other.squares, 0, squares, 0, squares.length);
+        System.arraycopy(other.bitboards, 0, bitboards, 0, bitboards.length);
+        System.arraycopy(other.occupancy, 0, occupancy, 0, occupancy.length);
+        currentPlayer = other.currentPlayer;
+        turn = other.turn;
+        castlingRights = other.castlingRights;
+        enPassantSquare = other.enPassantSquare;
+        halfmoveClock = other.halfmoveClock;
+        zobristKey = other.zobristKey;
+    }
+
+    private CompactMatch(Color currentPlayer) {
+        this.currentPlayer = currentPlayer;
+        if (currentPlayer == Color.BLACK) {
+            zobristKey ^= Zobrist.side();
+        }
+    }
+
+    public static CompactMatch fromFen(String fen) throws ChessException {
+        PositionBuffer position = new PositionBuffer();
+        if (!new FenReader(fen).next(position)) {
+            throw new ChessException("Invalid FEN: " + fen);
+        }
+        return fromPosition(position);
+    }
+
+    // Castling rights without their king and rook on the starting squares are dropped, as ChessMatch does.
+    public static CompactMatch fromPosition(PositionBuffer position) throws ChessException {
+        for (Color color : Color.values()) {
+            if (Long.bitCount(position.getBitboard(PieceType.KING, color)) != 1) {
+                throw new ChessException("Invalid position: each side needs exactly one king.");
+            }
+        }
+        CompactMatch match = new CompactMatch(position.getCurrentPlayer());
+        for (Color color : Color.values()) {
+            for (PieceType type : PieceType.values()) {
+                long pieces = position.getBitboard(type, color);
+                while (pieces != 0) {
+                    match.put(code(type.getValue(), color), Long.numberOfTrailingZeros(pieces));
+                    pieces &= pieces - 1;
+                }
+            }
+        }
+        int rights = position.getCastlingRights();
+        for (int square : new int[]{0, 4, 7, 56, 60, 63}) {
+            int expected = square == 4 || square == 60 ? KING : ROOK;
+            if (match.squares[square] != code(expected, square < 8 ? Color.BLACK : Color.WHITE)) {
+                rights &= CASTLING_MASK[square];
+            }
+        }
+        match.setCastlingRights(rights);
+        int square = position.getEnPassantSquare();
+        Color pusher = match.currentPlayer == Color.WHITE ? Color.BLACK : Color.WHITE;
+        if (square >= 0 && match.squares[square] == code(PAWN, pusher)) {
+            match.enPassantSquare = square;
+        }
+        match.halfmoveClock = position.getHalfmoveClock();
+        match.turn = (position.getFullmoveNumber() - 1) * 2 + (match.currentPlayer == Color.WHITE ? 1 : 2);
+        return match;
+    }
+
+    @Override
+    public CompactMatch copy() {
+        return new CompactMatch(this);
+    }
+
+    public String toFen() {
+        PositionBuffer position = new PositionBuffer();
+        position.load(this);
+        return position.toFen();
+    }
+
+    // The piece on a square as bitboard index + 1, or 0 when the square is empty.
+    public int getPiece(int square) {
+        return squares[square];
+    }
+
+    public PieceType getPieceType(int square) {
+        return squares[square] == 0 ? null : PieceType.fromValue((squares[square] - 1) % TYPES);
+    }
+
+    public Color getColor(int square) {
+        return squares[square] == 0 ? null : squares[square] > TYPES ? Color.WHITE : Color.BLACK;
+    }
+
+    @Override
+    public long getBitboard(PieceType type, Color color) {
+        return bitboards[color.getValue() * TYPES + type.getValue()];
+    }
+
+    @Override
+    public long getOccupancy(Color color) {
+        return occupancy[color.getValue()];
+    }
+
+    @Override
+    public long getOccupancy() {
+        return occupancy[0] | occupancy[1];
+    }
+
+    @Override
+    public Color getCurrentPlayer() {
+        return currentPlayer;
+    }
+
+    public int getTurn() {
+        return turn;
+    }
+
+    @Override
+    public int getCastlingRights() {
+        return castlingRights;
+    }
+
+    @Override
+    public int getEnPassantSquare() {
+        return enPassantSquare;
+    }
+
+    @Override
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    @Override
+    public int getFullmoveNumber() {
+        return (turn + 1) / 2;
+    }
+
+    @Override
+    public long getZobristKey() {
+        if (enPassantSquare < 0) {
+            return zobristKey;
+        }
+        return zobristKey ^ Zobrist.enPassant(enPassantSquare, getBitboard(PieceType.PAWN, currentPlayer));
+    }
+
+    public boolean isCheck() {
+        int king = Long.numberOfTrailingZeros(getBitboard(PieceType.KING, currentPlayer));
+        return MoveGenerator.attackersTo(this, king, opponent(currentPlayer), getOccupancy()) != 0;
+    }
+
+    @Override
+    public void generateLegalMoves(MoveList moves) {
+        moveGenerator.generate(currentPlayer, moves);
+    }
+
+    @Override
+    public void generateLegalCaptures(MoveList moves) {
+        moveGenerator.generate(currentPlayer, moves, true);
+    }
+
+    // The move must be legal; moves from generateLegalMoves() always are.
+    @Override
+    public void makeMove(int move) {
+        if (historySize == historyMoves.length) {
+            int capacity = historySize * 2;
+            historyMoves = Arrays.copyOf(historyMoves, capacity);
+            historyKeys = Arrays.copyOf(historyKeys, capacity);
+            historyState = Arrays.copyOf(historyState, capacity);
+        }
+        int from = MoveList.from(move);
+        int to = MoveList.to(move);
+        int code = squares[from];
+        int captured = squares[to];
+        int capturedSquare = to;
+        historyMoves[historySize] = move;
+        historyKeys[historySize] = zobristKey;
+
+        int ep = enPassantSquare;
+        boolean pawn = (code - 1) % TYPES == PAWN;
+        if (pawn && (from & 7) != (to & 7) && captured == 0) {
+            capturedSquare = ep;
+            captured = squares[ep];
+        }
+        historyState[historySize++] = captured | (capturedSquare != to ? 1L << 4 : 0L) | (long) castlingRights << 5
+                | (long) (ep + 1) << 9 | (long) halfmoveClock << 16;
+
+        enPassantSquare = -1;
+        halfmoveClock = pawn || captured != 0 ? 0 : halfmoveClock + 1;
+        if (captured != 0) {
+            remove(capturedSquare);
+        }
+        switch ((code - 1) % TYPES) {
+            case PAWN:
+                if (Math.abs(to - from) == 16) {
+                    enPassantSquare = to;
+                }
+                break;
+            case KING:
+                if (to - from == 2) {
+                    movePiece(from + 3, from + 1);
+                } else if (from - to == 2) {
+                    movePiece(from - 4, from - 1);
+                }
+                break;
+            default:
+                break;
+        }
+        movePiece(from, to);
+        if (MoveList.flags(move) != 0) {
+            remove(to);
+            put(code(MoveList.flags(move), currentPlayer), to);
+        }
+        setCastlingRights(castlingRights & CASTLING_MASK[from] & CASTLING_MASK[to]);
+
+        turn++;
+        currentPlayer = opponent(currentPlayer);
+        zobristKey ^= Zobrist.side();
+    }
+
+    @Override
+    public void undoMove() {
+        historySize--;
+        int move = historyMoves[historySize];
+        long state = historyState[historySize];
+        int from = MoveList.from(move);
+        int to = MoveList.to(move);
+        currentPlayer = opponent(currentPlayer);
+        turn--;
+
+        if (MoveList.flags(move) != 0) {
+            remove(to);
+            put(code(PAWN, currentPlayer), to);
+        }
+        movePiece(to, from);
+        int code = squares[from];
+        if ((code - 1) % TYPES == KING) {
+            if (to - from == 2) {
+                movePiece(from + 1, from + 3);
+            } else if (from - to == 2) {
+                movePiece(from - 1, from - 4);
+            }
+        }
+        int captured = (int) (state & 15);
+        int ep = (int) (state >>> 9 & 127) - 1;
+        if (captured != 0) {
+            put(captured, (state & 1L << 4) != 0 ? ep : to);
+        }
+        castlingRights = (int) (state >>> 5 & 15);
+        enPassantSquare = ep;
+        halfmoveClock = (int) (state >>> 16);
+        zobristKey = historyKeys[historySize];
+    }
+
+    private void movePiece(int from, int to) {
+        int code = squares[from];
+        remove(from);
+        put(code, to);
+    }
+
+    private void put(int code, int square) {
+        long bit = 1L << square;
+        squares[square] = (byte) code;
+        bitboards[code - 1] |= bit;
+        occupancy[(code - 1) / TYPES] |= bit;
+        zobristKey ^= Zobrist.piece(code - 1, square);
+    }
+
+    private void remove(int square) {
+        int code = squares[square];
+        long bit = 1L << square;
+        squares[square] = 0;
+        bitboards[code - 1] &= ~bit;
+        occupancy[(code - 1) / TYPES] &= ~bit;
+        zobristKey ^= Zobrist.piece(code - 1, square);
+    }
+
+    private void setCastlingRights(int rights) {
+        zobristKey ^= Zobrist.castling(castlingRights) ^ Zobrist.castling(rights);
+        castlingRights = rights;
+    }
+
+    private static int code(int type, Color color) {
+        return color.getValue() * TYPES + type + 1;
+    }
+
+    private static Color opponent(Color color) {
+        return color == Color.WHITE ? Color.BLACK : Color.WHITE;
+    }
+}
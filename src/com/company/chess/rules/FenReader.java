@@ -0,0 +1,218 @@
+package com.company.chess.rules;
+
+import java.nio.ByteBuffer;
+
+// Reads one FEN per line from a CharSequence or a ByteBuffer straight into a PositionBuffer. Nothing is
+// allocated per line: no String, no split, no boxing. Only the first two fields are required; anything
+// after the move counters (EPD operations, comments) is skipped up to the end of the line.
+public class FenReader {
+
+    // In bitboard order: index = color * 6 + piece type, Black first.
+    static final String PIECES = "pnbrqkPNBRQK";
+
+    private static final char END_OF_LINE = '\n';
+
+    private CharSequence text;
+    private ByteBuffer bytes;
+    private int index;
+    private int limit;
+    private int line;
+
+    public FenReader(CharSequence text) {
+        reset(text);
+    }
+
+    public FenReader(ByteBuffer bytes) {
+        reset(bytes);
+    }
+
+    public void reset(CharSequence text) {
+        this.text = text;
+        this.bytes = null;
+        index = 0;
+        limit = text.length();
+        line = 0;
+    }
+
+    // Reads from the buffer's position to its limit and moves the position past each line it reads.
+    public void reset(ByteBuffer bytes) {
+        this.text = null;
+        this.bytes = bytes;
+        index = bytes.position();
+        limit = bytes.limit();
+        line = 0;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    // Fills the position with the next non-blank line and returns false once the input is exhausted. A
+    // malformed line throws, but the reader has already moved past it, so the caller may catch and go on.
+    public boolean next(PositionBuffer position) throws ChessException {
+        while (index < limit && isSeparator(charAt(index))) {
+            index++;
+        }
+        if (index >= limit) {
+            return false;
+        }
+        line++;
+        position.clear();
+        try {
+            readPlacement(position);
+            readSide(position);
+            if (nextField()) {
+                readCastling(position);
+            }
+            if (nextField()) {
+                readEnPassant(position);
+            }
+            if (nextField()) {
+                position.setHalfmoveClock(readNumber());
+            }
+            if (nextField()) {
+                int fullmove = readNumber();
+                if (fullmove < 1) {
+                    throw invalid("move number");
+                }
+                position.setFullmoveNumber(fullmove);
+            }
+        } finally {
+            skipLine();
+        }
+        return true;
+    }
+
+    private void readPlacement(PositionBuffer position) throws ChessException {
+        int row = 0;
+        int column = 0;
+        for (char c = charAt(index); c != ' ' && c != '\t' && c != END_OF_LINE; c = charAt(++index)) {
+            if (c == '/') {
+                if (column != 8 || ++row > 7) {
+                    throw invalid("piece placement");
+                }
+                column = 0;
+            } else if (c >= '1' && c <= '8') {
+                column += c - '0';
+                if (column > 8) {
+                    throw invalid("piece placement");
+                }
+            } else {
+                int piece = PIECES.indexOf(c);
+                if (piece < 0 || column > 7) {
+                    throw invalid("piece placement");
+                }
+                position.setPiece(piece, row * 8 + column);
+                column++;
+            }
+        }
+        if (row != 7 || column != 8) {
+            throw invalid("piece placement");
+        }
+    }
+
+    private void readSide(PositionBuffer position) throws ChessException {
+        if (!nextField()) {
+            throw invalid("side to move");
+        }
+        char c = charAt(index++);
+        if (c != 'w' && c != 'b' || !isSeparator(charAt(index))) {
+            throw invalid("side to move");
+        }
+        position.setCurrentPlayer(c == 'w' ? Color.WHITE : Color.BLACK);
+    }
+
+    private void readCastling(PositionBuffer position) throws ChessException {
+        int rights = 0;
+        if (charAt(index) == '-') {
+            index++;
+        }
+        for (char c = charAt(index); !isSeparator(c); c = charAt(++index)) {
+            switch (c) {
+                case 'K':
+                    rights |= ChessMatch.WHITE_KINGSIDE;
+                    break;
+                case 'Q':
+                    rights |= ChessMatch.WHITE_QUEENSIDE;
+                    break;
+                case 'k':
+                    rights |= ChessMatch.BLACK_KINGSIDE;
+                    break;
+                case 'q':
+                    rights |= ChessMatch.BLACK_QUEENSIDE;
+                    break;
+                default:
+                    throw invalid("castling rights");
+            }
+        }
+        position.setCastlingRights(rights);
+    }
+
+    // FEN gives the square behind the pawn; the buffer keeps the pawn's own square, as ChessMatch does.
+    private void readEnPassant(PositionBuffer position) throws ChessException {
+        char file = charAt(index);
+        if (file == '-') {
+            index++;
+        } else {
+            char rank = charAt(index + 1);
+            boolean white = position.getCurrentPlayer() == Color.WHITE;
+            if (file < 'a' || file > 'h' || rank != (white ? '6' : '3')) {
+                throw invalid("en passant square");
+            }
+            int target = ('8' - rank) * 8 + file - 'a';
+            position.setEnPassantSquare(target + (white ? 8 : -8));
+            index += 2;
+        }
+        if (!isSeparator(charAt(index))) {
+            throw invalid("en passant square");
+        }
+    }
+
+    private int readNumber() throws ChessException {
+        int value = 0;
+        int digits = 0;
+        for (char c = charAt(index); c >= '0' && c <= '9'; c = charAt(++index)) {
+            value = value * 10 + c - '0';
+            if (++digits > 6) {
+                throw invalid("move counter");
+            }
+        }
+        if (digits == 0 || !isSeparator(charAt(index))) {
+            throw invalid("move counter");
+        }
+        return value;
+    }
+
+    // Skips spaces and tabs; true if another field follows on this line.
+    private boolean nextField() {
+        char c = charAt(index);
+        while (c == ' ' || c == '\t') {
+            c = charAt(++index);
+        }
+        return c != END_OF_LINE && c != '\r';
+    }
+
+    private void skipLine() {
+        while (index < limit && charAt(index) != END_OF_LINE) {
+            index++;
+        }
+        if (bytes != null) {
+            bytes.position(index);
+        }
+    }
+
+    private char charAt(int i) {
+        if (i >= limit) {
+            return END_OF_LINE;
+        }
+        return text != null ? text.charAt(i) : (char) (bytes.get(i) & 0xFF);
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == END_OF_LINE;
+    }
+
+    private ChessException invalid(String field) {
+        return new ChessException("Invalid FEN " + field + " on line " + line + ".");
+    }
+}
@@ -0,0 +1,61 @@
+package com.company.chess.rules;
+
+// What a SharedMatch publishes after each change: the position, the move that led to it and a version that
+// goes up by one with every change, so readers can tell whether they missed something.
+public final class MatchView {
+
+    private final long version;
+    private final PositionSnapshot snapshot;
+    private final int lastMove;
+
+    MatchView(long version, ChessMatch chessMatch) {
+        this.version = version;
+        snapshot = chessMatch.snapshot();
+        lastMove = chessMatch.getLastMove();
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public PositionSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    // Packed as in MoveList; 0 before any move.
+    public int getLastMove() {
+        return lastMove;
+    }
+
+    public Color getCurrentPlayer() {
+        return snapshot.getCurrentPlayer();
+    }
+
+    public int getTurn() {
+        return snapshot.getTurn();
+    }
+
+    public boolean getCheck() {
+        return snapshot.getCheck();
+    }
+
+    public boolean getCheckmate() {
+        return snapshot.getCheckmate();
+    }
+
+    public boolean getStalemate() {
+        return snapshot.getStalemate();
+    }
+
+    public PieceType getPieceType(int square) {
+        return snapshot.getPieceType(square);
+    }
+
+    public Color getColor(int square) {
+        return snapshot.getColor(square);
+    }
+
+    public String toFen() {
+        return snapshot.toFen();
+    }
+}
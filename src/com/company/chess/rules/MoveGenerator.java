@@ -0,0 +1,191 @@
+package com.company.chess.rules;
+
+import com.company.boardgame.MoveList;
+
+// Works on bitboards and castling rights alone, never on Piece objects, so it serves ChessMatch and
+// CompactMatch alike.
+class MoveGenerator {
+
+    private final BitboardPosition position;
+
+    MoveGenerator(BitboardPosition position) {
+        this.position = position;
+    }
+
+    static long attackersTo(BitboardPosition position, int square, Color color, long occupied) {
+        long queens = position.getBitboard(PieceType.QUEEN, color);
+        Color opponent = color == Color.WHITE ? Color.BLACK : Color.WHITE;
+        return (AttackTables.pawnAttacks(opponent, square) & position.getBitboard(PieceType.PAWN, color))
+                | (AttackTables.knightAttacks(square) & position.getBitboard(PieceType.KNIGHT, color))
+                | (AttackTables.kingAttacks(square) & position.getBitboard(PieceType.KING, color))
+                | (AttackTables.bishopAttacks(square, occupied) & (position.getBitboard(PieceType.BISHOP, color) | queens))
+                | (AttackTables.rookAttacks(square, occupied) & (position.getBitboard(PieceType.ROOK, color) | queens));
+    }
+
+    void generate(Color color, MoveList moves) {
+        generate(color, moves, false);
+    }
+
+    // Pins and the check evasion mask are worked out once, so every emitted move is already legal. With
+    // capturesOnly just the captures and promotions come out, for the quiescence search.
+    void generate(Color color, MoveList moves, boolean capturesOnly) {
+        Color them = color == Color.WHITE ? Color.BLACK : Color.WHITE;
+        long own = position.getOccupancy(color);
+        long opponents = position.getOccupancy(them);
+        long occupied = position.getOccupancy();
+        long destinations = capturesOnly ? opponents : ~own;
+        int king = Long.numberOfTrailingZeros(position.getBitboard(PieceType.KING, color));
+        long checkers = attackersTo(position, king, them, occupied);
+
+        // King
+        long targets = AttackTables.kingAttacks(king) & destinations;
+        long withoutKing = occupied ^ 1L << king;
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            if (attackersTo(position, to, them, withoutKing) == 0) {
+                moves.add(MoveList.move(king, to));
+            }
+            targets &= targets - 1;
+        }
+        if (Long.bitCount(checkers) > 1) {
+            return;
+        }
+
+        long checkMask = checkers == 0 ? -1L : checkers | AttackTables.between(king, Long.numberOfTrailingZeros(checkers));
+        long pinned = pinnedPieces(king, them, own, occupied);
+        long allowed = destinations & checkMask;
+
+        // Knights
+        long knights = position.getBitboard(PieceType.KNIGHT, color) & ~pinned;
+        while (knights != 0) {
+            int from = Long.numberOfTrailingZeros(knights);
+            addMoves(moves, from, AttackTables.knightAttacks(from) & allowed);
+            knights &= knights - 1;
+        }
+
+        // Bishops, Rooks and Queens
+        long queens = position.getBitboard(PieceType.QUEEN, color);
+        long diagonal = position.getBitboard(PieceType.BISHOP, color) | queens;
+        while (diagonal != 0) {
+            int from = Long.numberOfTrailingZeros(diagonal);
+            addMoves(moves, from, AttackTables.bishopAttacks(from, occupied) & allowed & pinRay(king, from, pinned));
+            diagonal &= diagonal - 1;
+        }
+        long straight = position.getBitboard(PieceType.ROOK, color) | queens;
+        while (straight != 0) {
+            int from = Long.numberOfTrailingZeros(straight);
+            addMoves(moves, from, AttackTables.rookAttacks(from, occupied) & allowed & pinRay(king, from, pinned));
+            straight &= straight - 1;
+        }
+
+        // Pawns
+        int forward = color == Color.WHITE ? -8 : 8;
+        int startRow = color == Color.WHITE ? 6 : 1;
+        int lastRow = color == Color.WHITE ? 0 : 7;
+        long pawns = position.getBitboard(PieceType.PAWN, color);
+        while (pawns != 0) {
+            int from = Long.numberOfTrailingZeros(pawns);
+            long pawnTargets = AttackTables.pawnAttacks(color, from) & opponents;
+            int one = from + forward;
+            if (one >= 0 && one < 64 && (occupied & 1L << one) == 0 && (!capturesOnly || one >>> 3 == lastRow)) {
+                pawnTargets |= 1L << one;
+                int two = one + forward;
+                if (from >>> 3 == startRow && !capturesOnly && (occupied & 1L << two) == 0) {
+                    pawnTargets |= 1L << two;
+                }
+            }
+            addPawnMoves(moves, from, pawnTargets & checkMask & pinRay(king, from, pinned));
+            pawns &= pawns - 1;
+        }
+
+        // En passant
+        int captured = position.getEnPassantSquare();
+        if (captured >= 0 && (position.getBitboard(PieceType.PAWN, them) & 1L << captured) != 0) {
+            int to = captured + forward;
+            long capturers = AttackTables.pawnAttacks(them, to) & position.getBitboard(PieceType.PAWN, color);
+            while (capturers != 0) {
+                int from = Long.numberOfTrailingZeros(capturers);
+                if (isLegalEnPassant(king, from, to, captured, them, checkers, occupied)) {
+                    moves.add(MoveList.move(from, to));
+                }
+                capturers &= capturers - 1;
+            }
+        }
+
+        // Castling: a right means the king and that rook are unmoved on their starting squares.
+        int rights = position.getCastlingRights() & (color == Color.WHITE
+                ? ChessMatch.WHITE_KINGSIDE | ChessMatch.WHITE_QUEENSIDE : ChessMatch.BLACK_KINGSIDE | ChessMatch.BLACK_QUEENSIDE);
+        if (checkers == 0 && rights != 0 && !capturesOnly) {
+            // Kingside
+            if ((rights & (ChessMatch.WHITE_KINGSIDE | ChessMatch.BLACK_KINGSIDE)) != 0
+                    && (occupied & (1L << king + 1 | 1L << king + 2)) == 0
+                    && attackersTo(position, king + 1, them, occupied) == 0 && attackersTo(position, king + 2, them, occupied) == 0) {
+                moves.add(MoveList.move(king, king + 2));
+            }
+            // Queenside
+            if ((rights & (ChessMatch.WHITE_QUEENSIDE | ChessMatch.BLACK_QUEENSIDE)) != 0
+                    && (occupied & (1L << king - 1 | 1L << king - 2 | 1L << king - 3)) == 0
+                    && attackersTo(position, king - 1, them, occupied) == 0 && attackersTo(position, king - 2, them, occupied) == 0) {
+                moves.add(MoveList.move(king, king - 2));
+            }
+        }
+    }
+
+    private long pinnedPieces(int king, Color them, long own, long occupied) {
+        long queens = position.getBitboard(PieceType.QUEEN, them);
+        long snipers = (AttackTables.rookAttacks(king, 0L) & (position.getBitboard(PieceType.ROOK, them) | queens))
+                | (AttackTables.bishopAttacks(king, 0L) & (position.getBitboard(PieceType.BISHOP, them) | queens));
+        long pinned = 0L;
+        while (snipers != 0) {
+            long blockers = AttackTables.between(king, Long.numberOfTrailingZeros(snipers)) & occupied;
+            if (Long.bitCount(blockers) == 1 && (blockers & own) != 0) {
+                pinned |= blockers;
+            }
+            snipers &= snipers - 1;
+        }
+        return pinned;
+    }
+
+    private long pinRay(int king, int from, long pinned) {
+        return (pinned & 1L << from) == 0 ? -1L : AttackTables.line(king, from);
+    }
+
+    // Both pawns leave their squares at once, so the rank or diagonal through the king is tested again.
+    private boolean isLegalEnPassant(int king, int from, int to, int captured, Color them, long checkers, long occupied) {
+        if ((checkers & ~(1L << captured) & ~sliders(them)) != 0) {
+            return false;
+        }
+        long after = (occupied ^ 1L << from ^ 1L << captured) | 1L << to;
+        long queens = position.getBitboard(PieceType.QUEEN, them);
+        return (AttackTables.rookAttacks(king, after) & (position.getBitboard(PieceType.ROOK, them) | queens)) == 0
+                && (AttackTables.bishopAttacks(king, after) & (position.getBitboard(PieceType.BISHOP, them) | queens)) == 0;
+    }
+
+    private long sliders(Color color) {
+        return position.getBitboard(PieceType.BISHOP, color) | position.getBitboard(PieceType.ROOK, color)
+                | position.getBitboard(PieceType.QUEEN, color);
+    }
+
+    // A pawn reaching the last row yields one move per promotion type, carried in the move flags.
+    private void addPawnMoves(MoveList moves, int from, long targets) {
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            if (to >>> 3 == 0 || to >>> 3 == 7) {
+                moves.add(MoveList.move(from, to, PieceType.QUEEN.getValue()));
+                moves.add(MoveList.move(from, to, PieceType.ROOK.getValue()));
+                moves.add(MoveList.move(from, to, PieceType.BISHOP.getValue()));
+                moves.add(MoveList.move(from, to, PieceType.KNIGHT.getValue()));
+            } else {
+                moves.add(MoveList.move(from, to));
+            }
+            targets &= targets - 1;
+        }
+    }
+
+    private void addMoves(MoveList moves, int from, long targets) {
+        while (targets != 0) {
+            moves.add(MoveList.move(from, Long.numberOfTrailingZeros(targets)));
+            targets &= targets - 1;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.company.chess.rules;
+
+import java.util.Arrays;
+
+// The pieces on the board by color and type, plus the captured pieces. Every piece knows its slot in its list,
+// so adding and removing are O(1): the last piece of the list takes the freed slot. Captures are kept as a
+// stack, since undoing moves always gives back the latest capture first.
+class PieceRegistry {
+
+    private final ChessPiece[][] pieces = new ChessPiece[PieceType.values().length * Color.values().length][10];
+    private final int[] counts = new int[pieces.length];
+    private ChessPiece[] captured = new ChessPiece[32];
+    private int capturedCount;
+
+    void add(ChessPiece piece) {
+        int index = piece.getBitboardIndex();
+        if (counts[index] == pieces[index].length) {
+            pieces[index] = Arrays.copyOf(pieces[index], counts[index] * 2);
+        }
+        piece.setSlot(counts[index]);
+        pieces[index][counts[index]++] = piece;
+    }
+
+    void remove(ChessPiece piece) {
+        int index = piece.getBitboardIndex();
+        int slot = piece.getSlot();
+        if (slot < 0 || slot >= counts[index] || pieces[index][slot] != piece) {
+            throw new IllegalStateException("Piece is not registered.");
+        }
+        ChessPiece last = pieces[index][--counts[index]];
+        pieces[index][slot] = last;
+        last.setSlot(slot);
+        pieces[index][counts[index]] = null;
+        piece.setSlot(-1);
+    }
+
+    int count(int bitboardIndex) {
+        return counts[bitboardIndex];
+    }
+
+    ChessPiece get(int bitboardIndex, int slot) {
+        return pieces[bitboardIndex][slot];
+    }
+
+    ChessPiece king(Color color) {
+        int index = ChessPiece.bitboardIndex(PieceType.KING, color);
+        return counts[index] == 0 ? null : pieces[index][0];
+    }
+
+    void pushCaptured(ChessPiece piece) {
+        if (capturedCount == captured.length) {
+            captured = Arrays.copyOf(captured, capturedCount * 2);
+        }
+        captured[capturedCount++] = piece;
+    }
+
+    ChessPiece popCaptured(ChessPiece piece) {
+        if (capturedCount == 0 || captured[capturedCount - 1] != piece) {
+            throw new IllegalStateException("Captures must be undone in the reverse order they were made.");
+        }
+        captured[--capturedCount] = null;
+        return piece;
+    }
+
+    int getCapturedCount() {
+        return capturedCount;
+    }
+
+    ChessPiece getCaptured(int i) {
+        return captured[i];
+    }
+}
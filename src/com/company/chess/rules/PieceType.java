@@ -0,0 +1,28 @@
+package com.company.chess.rules;
+
+public enum PieceType {
+
+    PAWN(0),
+    KNIGHT(1),
+    BISHOP(2),
+    ROOK(3),
+    QUEEN(4),
+    KING(5);
+
+    private static final PieceType[] VALUES = values();
+
+    private final int value;
+
+    PieceType(int value) {
+        this.value = value;
+    }
+
+    public int getValue() {
+        return value;
+    }
+
+    public static PieceType fromValue(int value) {
+        return VALUES[value];
+    }
+
+}
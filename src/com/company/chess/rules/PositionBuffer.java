@@ -0,0 +1,190 @@
+package com.company.chess.rules;
+
+import java.util.Arrays;
+
+// A mutable, reusable position for bulk work: FenReader fills it in place, so loading millions of positions
+// allocates nothing per position. ChessMatch.fromPosition() turns it into a playable match when needed.
+public class PositionBuffer {
+
+    private final long[] bitboards = new long[PieceType.values().length * Color.values().length];
+    private Color currentPlayer = Color.WHITE;
+    private int castlingRights;
+    private int enPassantSquare = -1;
+    private int halfmoveClock;
+    private int fullmoveNumber = 1;
+
+    public void clear() {
+        Arrays.fill(bitboards, 0L);
+        currentPlayer = Color.WHITE;
+        castlingRights = 0;
+        enPassantSquare = -1;
+        halfmoveClock = 0;
+        fullmoveNumber = 1;
+    }
+
+    public void load(BitboardPosition position) {
+        for (Color color : Color.values()) {
+            for (PieceType type : PieceType.values()) {
+                bitboards[ChessPiece.bitboardIndex(type, color)] = position.getBitboard(type, color);
+            }
+        }
+        currentPlayer = position.getCurrentPlayer();
+        castlingRights = position.getCastlingRights();
+        enPassantSquare = position.getEnPassantSquare();
+        halfmoveClock = position.getHalfmoveClock();
+        fullmoveNumber = position.getFullmoveNumber();
+    }
+
+    public void load(PositionSnapshot snapshot) {
+        for (Color color : Color.values()) {
+            for (PieceType type : PieceType.values()) {
+                bitboards[ChessPiece.bitboardIndex(type, color)] = snapshot.getBitboard(type, color);
+            }
+        }
+        currentPlayer = snapshot.getCurrentPlayer();
+        castlingRights = snapshot.getCastlingRights();
+        enPassantSquare = snapshot.getEnPassantSquare();
+        halfmoveClock = snapshot.getHalfmoveClock();
+        fullmoveNumber = (snapshot.getTurn() + 1) / 2;
+    }
+
+    public long getBitboard(PieceType type, Color color) {
+        return bitboards[ChessPiece.bitboardIndex(type, color)];
+    }
+
+    public long getOccupancy(Color color) {
+        long occupied = 0L;
+        for (int i = color.getValue() * 6; i < color.getValue() * 6 + 6; i++) {
+            occupied |= bitboards[i];
+        }
+        return occupied;
+    }
+
+    public long getOccupancy() {
+        return getOccupancy(Color.WHITE) | getOccupancy(Color.BLACK);
+    }
+
+    public Color getCurrentPlayer() {
+        return currentPlayer;
+    }
+
+    public int getCastlingRights() {
+        return castlingRights;
+    }
+
+    // Square of the pawn that can be taken en passant, or -1.
+    public int getEnPassantSquare() {
+        return enPassantSquare;
+    }
+
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    public int getFullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    // Same key ChessMatch.getZobristKey() gives for this position.
+    public long getZobristKey() {
+        long key = currentPlayer == Color.BLACK ? Zobrist.side() : 0L;
+        for (int i = 0; i < bitboards.length; i++) {
+            long pieces = bitboards[i];
+            while (pieces != 0) {
+                key ^= Zobrist.piece(i, Long.numberOfTrailingZeros(pieces));
+                pieces &= pieces - 1;
+            }
+        }
+        key ^= Zobrist.castling(castlingRights);
+        return enPassantSquare < 0 ? key : key ^ Zobrist.enPassant(enPassantSquare, bitboards[ChessPiece.bitboardIndex(PieceType.PAWN, currentPlayer)]);
+    }
+
+    public String toFen() {
+        StringBuilder sb = new StringBuilder(90);
+        appendFen(sb);
+        return sb.toString();
+    }
+
+    public void appendFen(StringBuilder sb) {
+        for (int row = 0; row < 8; row++) {
+            int empty = 0;
+            for (int column = 0; column < 8; column++) {
+                int index = indexAt(row * 8 + column);
+                if (index < 0) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    sb.append(empty);
+                    empty = 0;
+                }
+                sb.append(FenReader.PIECES.charAt(index));
+            }
+            if (empty > 0) {
+                sb.append(empty);
+            }
+            if (row < 7) {
+                sb.append('/');
+            }
+        }
+        sb.append(currentPlayer == Color.WHITE ? " w " : " b ");
+        if (castlingRights == 0) {
+            sb.append('-');
+        }
+        if ((castlingRights & ChessMatch.WHITE_KINGSIDE) != 0) {
+            sb.append('K');
+        }
+        if ((castlingRights & ChessMatch.WHITE_QUEENSIDE) != 0) {
+            sb.append('Q');
+        }
+        if ((castlingRights & ChessMatch.BLACK_KINGSIDE) != 0) {
+            sb.append('k');
+        }
+        if ((castlingRights & ChessMatch.BLACK_QUEENSIDE) != 0) {
+            sb.append('q');
+        }
+        sb.append(' ');
+        if (enPassantSquare < 0) {
+            sb.append('-');
+        } else {
+            // FEN names the square the pawn skipped, one row behind it.
+            int target = enPassantSquare + (enPassantSquare >>> 3 == 3 ? -8 : 8);
+            sb.append((char) ('a' + (target & 7))).append(8 - (target >>> 3));
+        }
+        sb.append(' ').append(halfmoveClock).append(' ').append(fullmoveNumber);
+    }
+
+    // Index into FenReader.PIECES, which follows the bitboard order, or -1 for an empty square.
+    private int indexAt(int square) {
+        for (int i = 0; i < bitboards.length; i++) {
+            if ((bitboards[i] & 1L << square) != 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    void setPiece(int bitboardIndex, int square) {
+        bitboards[bitboardIndex] |= 1L << square;
+    }
+
+    void setCurrentPlayer(Color currentPlayer) {
+        this.currentPlayer = currentPlayer;
+    }
+
+    void setCastlingRights(int castlingRights) {
+        this.castlingRights = castlingRights;
+    }
+
+    void setEnPassantSquare(int enPassantSquare) {
+        this.enPassantSquare = enPassantSquare;
+    }
+
+    void setHalfmoveClock(int halfmoveClock) {
+        this.halfmoveClock = halfmoveClock;
+    }
+
+    void setFullmoveNumber(int fullmoveNumber) {
+        this.fullmoveNumber = fullmoveNumber;
+    }
+}
@@ -0,0 +1,159 @@
+package com.company.chess.rules;
+
+public final class PositionSnapshot {
+
+    private static final int WHITE_TO_MOVE = 1;
+    private static final int CASTLING_SHIFT = 1;
+    private static final int EN_PASSANT_SHIFT = 5;
+    private static final int CHECK = 1 << 12;
+    private static final int CHECKMATE = 1 << 13;
+    private static final int STALEMATE = 1 << 14;
+    private static final int HALFMOVE_SHIFT = 16;
+
+    // Kings are whatever is occupied and not one of the other five types, so they need no bitboard of their own.
+    private final long white;
+    private final long black;
+    private final long pawns;
+    private final long knights;
+    private final long bishops;
+    private final long rooks;
+    private final long queens;
+    private final long zobristKey;
+    private final int turn;
+    // Side to move in bit 0, castling rights in bits 1-4, en passant pawn square + 1 in bits 5-11, then check,
+    // checkmate and stalemate, and the halfmove clock from bit 16.
+    private final int state;
+
+    PositionSnapshot(ChessMatch chessMatch) {
+        white = chessMatch.getOccupancy(Color.WHITE);
+        black = chessMatch.getOccupancy(Color.BLACK);
+        pawns = bothColors(chessMatch, PieceType.PAWN);
+        knights = bothColors(chessMatch, PieceType.KNIGHT);
+        bishops = bothColors(chessMatch, PieceType.BISHOP);
+        rooks = bothColors(chessMatch, PieceType.ROOK);
+        queens = bothColors(chessMatch, PieceType.QUEEN);
+        zobristKey = chessMatch.getZobristKey();
+        turn = chessMatch.getTurn();
+        ChessPiece vulnerable = chessMatch.getEnPassantVulnerability();
+        state = (chessMatch.getCurrentPlayer() == Color.WHITE ? WHITE_TO_MOVE : 0)
+                | chessMatch.getCastlingRights() << CASTLING_SHIFT
+                | (vulnerable == null ? 0 : vulnerable.getSquare() + 1) << EN_PASSANT_SHIFT
+                | (chessMatch.getCheck() ? CHECK : 0)
+                | (chessMatch.getCheckmate() ? CHECKMATE : 0)
+                | (chessMatch.getStalemate() ? STALEMATE : 0)
+                | chessMatch.getHalfmoveClock() << HALFMOVE_SHIFT;
+    }
+
+    public Color getCurrentPlayer() {
+        return (state & WHITE_TO_MOVE) != 0 ? Color.WHITE : Color.BLACK;
+    }
+
+    public int getTurn() {
+        return turn;
+    }
+
+    public int getCastlingRights() {
+        return state >>> CASTLING_SHIFT & 15;
+    }
+
+    // Square of the pawn that can be taken en passant, or -1.
+    public int getEnPassantSquare() {
+        return (state >>> EN_PASSANT_SHIFT & 127) - 1;
+    }
+
+    public int getHalfmoveClock() {
+        return state >>> HALFMOVE_SHIFT;
+    }
+
+    public boolean getCheck() {
+        return (state & CHECK) != 0;
+    }
+
+    public boolean getCheckmate() {
+        return (state & CHECKMATE) != 0;
+    }
+
+    public boolean getStalemate() {
+        return (state & STALEMATE) != 0;
+    }
+
+    public long getZobristKey() {
+        return zobristKey;
+    }
+
+    public long getOccupancy() {
+        return white | black;
+    }
+
+    public long getOccupancy(Color color) {
+        return color == Color.WHITE ? white : black;
+    }
+
+    public long getBitboard(PieceType type, Color color) {
+        return typeBitboard(type) & getOccupancy(color);
+    }
+
+    public PieceType getPieceType(int square) {
+        long bit = 1L << square;
+        if ((getOccupancy() & bit) == 0) {
+            return null;
+        }
+        for (PieceType type : PieceType.values()) {
+            if ((typeBitboard(type) & bit) != 0) {
+                return type;
+            }
+        }
+        throw new IllegalStateException("Square " + square + " is occupied by no piece type.");
+    }
+
+    public Color getColor(int square) {
+        long bit = 1L << square;
+        return (white & bit) != 0 ? Color.WHITE : (black & bit) != 0 ? Color.BLACK : null;
+    }
+
+    public String toFen() {
+        PositionBuffer position = new PositionBuffer();
+        position.load(this);
+        return position.toFen();
+    }
+
+    private long typeBitboard(PieceType type) {
+        switch (type) {
+            case PAWN:
+                return pawns;
+            case KNIGHT:
+                return knights;
+            case BISHOP:
+                return bishops;
+            case ROOK:
+                return rooks;
+            case QUEEN:
+                return queens;
+            default:
+                return (white | black) & ~(pawns | knights | bishops | rooks | queens);
+        }
+    }
+
+    private static long bothColors(ChessMatch chessMatch, PieceType type) {
+        return chessMatch.getBitboard(type, Color.WHITE) | chessMatch.getBitboard(type, Color.BLACK);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof PositionSnapshot)) {
+            return false;
+        }
+        PositionSnapshot other = (PositionSnapshot) o;
+        return zobristKey == other.zobristKey && white == other.white && black == other.black
+                && pawns == other.pawns && knights == other.knights && bishops == other.bishops
+                && rooks == other.rooks && queens == other.queens && turn == other.turn && state == other.state;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(zobristKey) * 31 + turn;
+    }
+}
@@ -0,0 +1,78 @@
+package com.company.chess.rules;
+
+import com.company.boardgame.BoardException;
+import com.company.boardgame.MoveList;
+
+import java.nio.ByteBuffer;
+
+// A ChessMatch shared between threads: one side plays, any number of spectators watch. Changes are serialized
+// on the facade and each successful one publishes a new immutable MatchView. Readers only load that view, so
+// they never see a move half made (castling, en passant, promotion) and never hold up the mover, however
+// often they look. The wrapped match must not be used directly once it is shared. There is no undo: moves
+// made through performChessMove() keep no undo history, so undoing could take back some other move.
+public class SharedMatch {
+
+    private final ChessMatch match;
+    private long version;
+    private volatile MatchView view;
+
+    public SharedMatch(ChessMatch match) {
+        this(match, 0);
+    }
+
+    // Versions continue from the given one, e.g. for a match restored with that many changes already made.
+    public SharedMatch(ChessMatch match, long version) {
+        this.match = match;
+        this.version = version;
+        view = new MatchView(version, match);
+    }
+
+    public MatchView getView() {
+        return view;
+    }
+
+    public long getVersion() {
+        return view.getVersion();
+    }
+
+    public synchronized ChessPiece performChessMove(ChessPosition source, ChessPosition target) throws BoardException, ChessException {
+        ChessPiece captured = match.performChessMove(source, target);
+        publish();
+        return captured;
+    }
+
+    public synchronized ChessPiece replacePromotedPiece(String type) throws BoardException, ChessException {
+        ChessPiece promoted = match.replacePromotedPiece(type);
+        publish();
+        return promoted;
+    }
+
+    public synchronized void generateLegalMoves(MoveList moves) throws BoardException {
+        match.generateLegalMoves(moves);
+    }
+
+    // The move must be legal, as for ChessMatch.makeMove().
+    public synchronized void makeMove(int move) throws BoardException {
+        match.makeMove(move);
+        publish();
+    }
+
+    // A private match at the current position, e.g. for analysis. Unlike the view it waits for a move in
+    // progress to finish.
+    public synchronized ChessMatch copy() throws BoardException {
+        return match.copy();
+    }
+
+    // The binary form of ChessMatch.writeTo(), taken between moves.
+    public synchronized void writeTo(ByteBuffer buffer) {
+        match.writeTo(buffer);
+    }
+
+    public synchronized int getEncodedSize() {
+        return match.getEncodedSize();
+    }
+
+    private void publish() {
+        view = new MatchView(++version, match);
+    }
+}
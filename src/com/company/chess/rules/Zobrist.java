@@ -0,0 +1,61 @@
+package com.company.chess.rules;
+
+public final class Zobrist {
+
+    private static final long[][] PIECES = new long[PieceType.values().length * Color.values().length][64];
+    private static final long[] CASTLING = new long[16];
+    private static final long[] EN_PASSANT = new long[8];
+    private static final long SIDE;
+
+    private static long seed = 0x2545F4914F6CDD1DL;
+
+    static {
+        for (long[] keys : PIECES) {
+            for (int square = 0; square < 64; square++) {
+                keys[square] = nextRandom();
+            }
+        }
+        // No rights at all hashes to 0, so an XOR of the old and new rights is all an update needs.
+        for (int rights = 1; rights < CASTLING.length; rights++) {
+            CASTLING[rights] = nextRandom();
+        }
+        for (int file = 0; file < EN_PASSANT.length; file++) {
+            EN_PASSANT[file] = nextRandom();
+        }
+        SIDE = nextRandom();
+    }
+
+    private Zobrist() {
+    }
+
+    public static long piece(int bitboardIndex, int square) {
+        return PIECES[bitboardIndex][square];
+    }
+
+    public static long castling(int rights) {
+        return CASTLING[rights];
+    }
+
+    public static long enPassant(int file) {
+        return EN_PASSANT[file];
+    }
+
+    // The en passant file only counts when a pawn of the other side stands beside the pawn that just stepped
+    // two squares, as in Polyglot; otherwise the position is the same one reached without the double step.
+    public static long enPassant(int pawnSquare, long capturingPawns) {
+        int file = pawnSquare & 7;
+        long beside = (file > 0 ? 1L << (pawnSquare - 1) : 0L) | (file < 7 ? 1L << (pawnSquare + 1) : 0L);
+        return (capturingPawns & beside) == 0 ? 0L : EN_PASSANT[file];
+    }
+
+    public static long side() {
+        return SIDE;
+    }
+
+    private static long nextRandom() {
+        seed ^= seed >>> 12;
+        seed ^= seed << 25;
+        seed ^= seed >>> 27;
+        return seed * 0x2545F4914F6CDD1DL;
+    }
+}
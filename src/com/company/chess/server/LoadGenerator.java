@@ -0,0 +1,159 @@
+package com.company.chess.server;
+
+import com.company.boardgame.MoveList;
+import com.company.chess.engine.Perft;
+import com.company.chess.rules.CompactMatch;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Plays random games against a MatchServer and records the round trip of every move. Each client is one
+// connection that keeps several matches going at once, one move per match in turn, so clients * matches
+// sessions are open on the server. Clients mirror their matches on a CompactMatch to pick legal moves
+// without asking the server.
+public class LoadGenerator {
+
+    private final String host;
+    private final int port;
+    private final int clients;
+    private final int matchesPerClient;
+    private final int maxPlies;
+
+    public LoadGenerator(String host, int port, int clients, int matchesPerClient, int maxPlies) {
+        if (clients < 1 || matchesPerClient < 1) {
+            throw new IllegalArgumentException("Client and match counts must be AT LEAST 1.");
+        }
+        this.host = host;
+        this.port = port;
+        this.clients = clients;
+        this.matchesPerClient = matchesPerClient;
+        this.maxPlies = maxPlies;
+    }
+
+    // Games are shared out between the clients; every client plays its own seeded sequence of moves.
+    public LoadResult run(int games) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(clients, r -> {
+            Thread t = new Thread(r, "load-client");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            long start = System.nanoTime();
+            List<Future<long[]>> results = new ArrayList<>();
+            for (int i = 0; i < clients; i++) {
+                int quota = games / clients + (i < games % clients ? 1 : 0);
+                Random random = new Random(i);
+                results.add(executor.submit(() -> play(quota, random)));
+            }
+            List<long[]> latencies = new ArrayList<>();
+            int total = 0;
+            for (Future<long[]> future : results) {
+                long[] l = join(future);
+                latencies.add(l);
+                total += l.length;
+            }
+            long elapsed = (System.nanoTime() - start) / 1_000_000;
+
+            long[] merged = new long[total];
+            int size = 0;
+            for (long[] l : latencies) {
+                System.arraycopy(l, 0, merged, size, l.length);
+                size += l.length;
+            }
+            Arrays.sort(merged);
+            return new LoadResult(games, elapsed, merged);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private long[] play(int quota, Random random) throws IOException {
+        try (Socket socket = new Socket(host, port);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+             Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII))) {
+            socket.setTcpNoDelay(true);
+            long[] latencies = new long[1024];
+            int count = 0;
+            String[] ids = new String[matchesPerClient];
+            CompactMatch[] matches = new CompactMatch[matchesPerClient];
+            MoveList moves = new MoveList();
+            int started = 0;
+            boolean playing = true;
+            while (playing) {
+                playing = false;
+                for (int i = 0; i < matchesPerClient; i++) {
+                    if (matches[i] == null) {
+                        if (started == quota) {
+                            continue;
+                        }
+                        started++;
+                        ids[i] = call(in, out, "NEW").substring(3);
+                        matches[i] = new CompactMatch();
+                    }
+                    playing = true;
+                    CompactMatch match = matches[i];
+                    moves.clear();
+                    match.generateLegalMoves(moves);
+                    if (moves.isEmpty() || match.getTurn() > maxPlies) {
+                        call(in, out, "CLOSE " + ids[i]);
+                        matches[i] = null;
+                        continue;
+                    }
+                    int move = moves.get(random.nextInt(moves.size()));
+                    long t = System.nanoTime();
+                    call(in, out, "MOVE " + ids[i] + " " + Perft.toUci(move));
+                    if (count == latencies.length) {
+                        latencies = Arrays.copyOf(latencies, count * 2);
+                    }
+                    latencies[count++] = (System.nanoTime() - t) / 1000;
+                    match.makeMove(move);
+                }
+            }
+            out.write("QUIT\n");
+            out.flush();
+            return Arrays.copyOf(latencies, count);
+        }
+    }
+
+    private static String call(BufferedReader in, Writer out, String command) throws IOException {
+        out.write(command);
+        out.write('\n');
+        out.flush();
+        String reply = in.readLine();
+        if (reply == null) {
+            throw new IOException("The server closed the connection.");
+        }
+        if (!reply.startsWith("OK")) {
+            throw new IOException("The server replied \"" + reply + "\" to \"" + command + "\".");
+        }
+        return reply;
+    }
+
+    private static long[] join(Future<long[]> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Load run interrupted.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.company.chess.server;
+
+public class LoadResult {
+
+    private final int games;
+    private final long moves;
+    private final long elapsedMillis;
+    // Round trip of every move in microseconds, sorted
+    private final long[] latencies;
+
+    LoadResult(int games, long elapsedMillis, long[] latencies) {
+        this.games = games;
+        this.moves = latencies.length;
+        this.elapsedMillis = elapsedMillis;
+        this.latencies = latencies;
+    }
+
+    public int getGames() {
+        return games;
+    }
+
+    public long getMoves() {
+        return moves;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public long getMovesPerSecond() {
+        return moves * 1000 / Math.max(1, elapsedMillis);
+    }
+
+    // Latency below which the given share of moves completed, e.g. 0.99 for p99.
+    public long getLatencyMicros(double percentile) {
+        if (latencies.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * latencies.length) - 1;
+        return latencies[Math.max(0, Math.min(latencies.length - 1, index))];
+    }
+
+    @Override
+    public String toString() {
+        return "games " + games + "  moves " + moves + "  time " + elapsedMillis + " ms  moves/s " + getMovesPerSecond()
+                + "  latency p50 " + getLatencyMicros(0.5) + " us  p99 " + getLatencyMicros(0.99) + " us  max "
+                + getLatencyMicros(1.0) + " us";
+    }
+}
@@ -0,0 +1,135 @@
+package com.company.chess.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Keeps the recently played matches of a server in memory within a byte budget. Past the budget the least
+// recently played ones are spilled to a memory-mapped file in the binary form of ChessMatch.writeTo(), and a
+// spilled match comes back on its next move. Until then it keeps its last MatchView, so reading its position
+// costs no reload. Sizes are estimates: a fixed cost per ChessMatch plus its move history.
+public class MatchCache implements Closeable {
+
+    // A new ChessMatch behind a SharedMatch measures about 5.4 KB; its move history grows with every ply
+    static final long MATCH_BYTES = 6 << 10;
+    static final long PLY_BYTES = 32;
+
+    private final long budget;
+    // Access order, eldest first; sessions whose match is in memory and its estimated size
+    private final LinkedHashMap<MatchSession, Long> resident = new LinkedHashMap<>(16, 0.75f, true);
+    private long residentBytes;
+    // Created on the first eviction
+    private MatchSpillFile spill;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    // Long.MAX_VALUE keeps every match in memory.
+    MatchCache(long budget) {
+        this.budget = budget;
+    }
+
+    public long getBudget() {
+        return budget;
+    }
+
+    public synchronized int getResidentCount() {
+        return resident.size();
+    }
+
+    public synchronized long getResidentBytes() {
+        return residentBytes;
+    }
+
+    public synchronized int getSpilledCount() {
+        return spill == null ? 0 : spill.getUsedSlots();
+    }
+
+    // Moves on a match in memory
+    public long getHits() {
+        return hits.sum();
+    }
+
+    // Moves that had to reload the match first
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    // Records that the session was just played, with its match in memory at the given size.
+    synchronized void touch(MatchSession session, long bytes) {
+        Long previous = resident.put(session, bytes);
+        residentBytes += bytes - (previous == null ? 0 : previous);
+    }
+
+    synchronized void removed(MatchSession session) {
+        Long bytes = resident.remove(session);
+        if (bytes != null) {
+            residentBytes -= bytes;
+        }
+    }
+
+    void hit() {
+        hits.increment();
+    }
+
+    void miss() {
+        misses.increment();
+    }
+
+    void evicted() {
+        evictions.increment();
+    }
+
+    synchronized MatchSpillFile spill() throws IOException {
+        if (spill == null) {
+            spill = new MatchSpillFile(Files.createTempFile("matches-", ".spill"));
+        }
+        return spill;
+    }
+
+    // Spills the least recently played matches until the rest fit the budget. Called with no session locked,
+    // since evicting takes the lock of each victim.
+    void evictOverBudget() throws IOException {
+        for (MatchSession session : victims()) {
+            if (session.evict()) {
+                evicted();
+            }
+        }
+    }
+
+    private synchronized List<MatchSession> victims() {
+        List<MatchSession> victims = new ArrayList<>();
+        long excess = residentBytes - budget;
+        Iterator<Map.Entry<MatchSession, Long>> it = resident.entrySet().iterator();
+        while (excess > 0 && it.hasNext()) {
+            Map.Entry<MatchSession, Long> entry = it.next();
+            victims.add(entry.getKey());
+            excess -= entry.getValue();
+        }
+        return victims;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (spill != null) {
+            spill.close();
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d matches in memory (%d KB of %s), %d spilled, %d hits, %d misses, %d evictions",
+                resident.size(), residentBytes >> 10, budget == Long.MAX_VALUE ? "unlimited" : (budget >> 10) + " KB",
+                getSpilledCount(), getHits(), getMisses(), getEvictions());
+    }
+}
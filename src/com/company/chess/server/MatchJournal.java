@@ -0,0 +1,404 @@
+package com.company.chess.server;
+
+import com.company.boardgame.BoardException;
+import com.company.chess.rules.ChessException;
+import com.company.chess.rules.ChessMatch;
+import com.company.chess.rules.MatchView;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+// Write-ahead journal of the server's matches, so a crash loses none of the moves it acknowledged. Records go
+// to numbered segment files, journal-N.log: MAGIC, VERSION and N, then records of a payload length, the CRC32C
+// of the payload and the payload itself, which is one of
+//   NEW    match id, FEN length and FEN (empty for the initial position)
+//   MOVE   match id, the match's move count after the move, the packed move
+//   CLOSE  match id
+// Appends only fill a buffer. A flusher thread writes and forces it to disk as one batch, and sync() waits for
+// the batch holding everything appended before it, so one fsync covers all the moves that arrived meanwhile.
+//
+// A checkpoint starts a new segment, then saves every open match as FEN with its move count to checkpoint-N.dat
+// and deletes what came before. Recovery loads the latest checkpoint and replays the segments from it on,
+// skipping moves the checkpoint already holds, so replay only covers the moves since the last checkpoint. A
+// match whose moves have a gap is logged and recovered up to the gap.
+public class MatchJournal implements Closeable {
+
+    static final int MAGIC = 0x43484a4c;
+    static final int VERSION = 1;
+    private static final int SEGMENT_HEADER_BYTES = 16;
+    private static final int RECORD_HEADER_BYTES = 6;
+    private static final byte NEW = 1;
+    private static final byte MOVE = 2;
+    private static final byte CLOSE = 3;
+    private static final Logger LOGGER = Logger.getLogger(MatchJournal.class.getName());
+
+    private final Path directory;
+    // Guarded by this, like the buffers
+    private final CRC32C crc = new CRC32C();
+    private final Object checkpointLock = new Object();
+    private final Thread flusher;
+
+    private ByteBuffer pending = ByteBuffer.allocate(1 << 16);
+    private ByteBuffer spare = ByteBuffer.allocate(1 << 16);
+    private long appended;
+    private long durable;
+    private long segmentStart;
+    private long segment;
+    private boolean rotateRequested;
+    private boolean closed;
+    private IOException failure;
+
+    // Only used by the flusher once it has started
+    private FileChannel channel;
+
+    private long firstSegment;
+    private int maxMatchId;
+
+    public MatchJournal(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        long last = -1;
+        for (Path file : list(directory, "journal-", ".log")) {
+            last = Math.max(last, number(file));
+        }
+        for (Path file : list(directory, "checkpoint-", ".dat")) {
+            firstSegment = Math.max(firstSegment, number(file));
+            last = Math.max(last, number(file));
+        }
+        segment = last + 1;
+        channel = openSegment(segment);
+        flusher = new Thread(this::flush, "match-journal");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    // Highest match id recorded so far, so new matches do not reuse ids. Valid after recover().
+    public int getMaxMatchId() {
+        return maxMatchId;
+    }
+
+    // Bytes appended since the last checkpoint.
+    public synchronized long getSegmentBytes() {
+        return appended - segmentStart;
+    }
+
+    void appendNew(int id, String fen) throws IOException {
+        byte[] bytes = fen.getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer record = ByteBuffer.allocate(7 + bytes.length);
+        record.put(NEW).putInt(id).putShort((short) bytes.length).put(bytes);
+        append(record);
+    }
+
+    void appendMove(int id, long sequence, int move) throws IOException {
+        append(ByteBuffer.allocate(11).put(MOVE).putInt(id).putInt((int) sequence).putShort((short) move));
+    }
+
+    void appendClose(int id) throws IOException {
+        append(ByteBuffer.allocate(5).put(CLOSE).putInt(id));
+    }
+
+    // Waits until everything appended so far is on disk.
+    public synchronized void sync() throws IOException {
+        long target = appended;
+        while (durable < target && failure == null) {
+            waitForFlusher();
+        }
+        checkFailure();
+    }
+
+    private synchronized void append(ByteBuffer payload) throws IOException {
+        checkFailure();
+        if (closed) {
+            throw new IOException("The journal is closed.");
+        }
+        payload.flip();
+        crc.reset();
+        crc.update(payload.array(), 0, payload.limit());
+        int size = RECORD_HEADER_BYTES + payload.limit();
+        if (pending.remaining() < size) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + size));
+            pending.flip();
+            pending = larger.put(pending);
+        }
+        pending.putShort((short) payload.limit()).putInt((int) crc.getValue()).put(payload);
+        appended += size;
+        notifyAll();
+    }
+
+    private void flush() {
+        while (true) {
+            ByteBuffer batch;
+            long end;
+            boolean rotate;
+            synchronized (this) {
+                while (pending.position() == 0 && !rotateRequested && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        closed = true;
+                    }
+                }
+                if (pending.position() == 0 && !rotateRequested) {
+                    return;
+                }
+                batch = pending;
+                pending = spare;
+                spare = null;
+                end = appended;
+                rotate = rotateRequested;
+            }
+            try {
+                batch.flip();
+                while (batch.hasRemaining()) {
+                    channel.write(batch);
+                }
+                channel.force(false);
+                if (rotate) {
+                    channel.close();
+                    channel = openSegment(segment + 1);
+                }
+            } catch (IOException e) {
+                synchronized (this) {
+                    failure = e;
+                    notifyAll();
+                }
+                return;
+            }
+            synchronized (this) {
+                batch.clear();
+                spare = batch;
+                durable = end;
+                if (rotate) {
+                    segment++;
+                    segmentStart = end;
+                    rotateRequested = false;
+                }
+                notifyAll();
+            }
+        }
+    }
+
+    // Saves the given matches and drops the segments they make redundant. Records appended meanwhile go to the
+    // new segment; the move counts tell recovery which of them the checkpoint already holds.
+    void checkpoint(Collection<MatchSession> sessions, int maxMatchId) throws IOException {
+        synchronized (checkpointLock) {
+            long next;
+            synchronized (this) {
+                checkFailure();
+                next = segment + 1;
+                rotateRequested = true;
+                notifyAll();
+                while (segment < next && failure == null) {
+                    waitForFlusher();
+                }
+                checkFailure();
+            }
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(next);
+            out.writeInt(maxMatchId);
+            List<MatchSession> open = new ArrayList<>(sessions);
+            out.writeInt(open.size());
+            for (MatchSession session : open) {
+                MatchView view = session.getSettledView();
+                byte[] fen = view.toFen().getBytes(StandardCharsets.US_ASCII);
+                out.writeInt(session.getId());
+                out.writeInt((int) view.getVersion());
+                out.writeShort(fen.length);
+                out.write(fen);
+            }
+            CRC32C checksum = new CRC32C();
+            checksum.update(bytes.toByteArray());
+            out.writeInt((int) checksum.getValue());
+            out.writeInt(MAGIC);
+
+            Path temporary = directory.resolve("checkpoint.tmp");
+            try (FileChannel file = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+                while (buffer.hasRemaining()) {
+                    file.write(buffer);
+                }
+                file.force(true);
+            }
+            Files.move(temporary, directory.resolve(String.format("checkpoint-%08d.dat", next)), StandardCopyOption.ATOMIC_MOVE);
+
+            for (Path file : list(directory, "journal-", ".log")) {
+                if (number(file) < next) {
+                    Files.delete(file);
+                }
+            }
+            for (Path file : list(directory, "checkpoint-", ".dat")) {
+                if (number(file) < next) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    // Rebuilds the matches that were open at the crash from the latest checkpoint and the segments after it.
+    // A torn record at the end of a segment, from a batch that was never acknowledged, ends that segment.
+    // The sessions are registered with the cache, as the server's own are.
+    Map<Integer, MatchSession> recover(MatchCache cache) throws IOException {
+        Map<Integer, MatchSession> sessions = new HashMap<>();
+        try {
+            Path checkpoint = directory.resolve(String.format("checkpoint-%08d.dat", firstSegment));
+            if (Files.exists(checkpoint)) {
+                readCheckpoint(checkpoint, sessions, cache);
+            }
+            List<Path> segments = list(directory, "journal-", ".log");
+            segments.sort((a, b) -> Long.compare(number(a), number(b)));
+            for (Path file : segments) {
+                if (number(file) >= firstSegment && number(file) < segment) {
+                    replay(file, sessions, cache);
+                }
+            }
+        } catch (ChessException | BoardException e) {
+            throw new IOException("Invalid journal record: " + e.getMessage(), e);
+        }
+        return sessions;
+    }
+
+    private void readCheckpoint(Path file, Map<Integer, MatchSession> sessions, MatchCache cache) throws IOException, ChessException, BoardException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (buffer.limit() < 32 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new IOException("Not a journal checkpoint: " + file);
+        }
+        CRC32C checksum = new CRC32C();
+        checksum.update(buffer.array(), 0, buffer.limit() - 8);
+        if (buffer.getInt(buffer.limit() - 8) != (int) checksum.getValue() || buffer.getInt(buffer.limit() - 4) != MAGIC) {
+            throw new IOException("Journal checkpoint is corrupt: " + file);
+        }
+        buffer.getLong();
+        maxMatchId = Math.max(maxMatchId, buffer.getInt());
+        int count = buffer.getInt();
+        for (int i = 0; i < count; i++) {
+            int id = buffer.getInt();
+            int sequence = buffer.getInt();
+            byte[] fen = new byte[buffer.getShort()];
+            buffer.get(fen);
+            sessions.put(id, new MatchSession(id, ChessMatch.fromFen(new String(fen, StandardCharsets.US_ASCII)), sequence, this, cache));
+        }
+    }
+
+    private void replay(Path file, Map<Integer, MatchSession> sessions, MatchCache cache) throws IOException, ChessException, BoardException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (buffer.limit() < SEGMENT_HEADER_BYTES || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new IOException("Not a journal segment: " + file);
+        }
+        buffer.getLong();
+        CRC32C checksum = new CRC32C();
+        while (buffer.remaining() >= RECORD_HEADER_BYTES) {
+            int size = buffer.getShort() & 0xFFFF;
+            int expected = buffer.getInt();
+            if (size == 0 || buffer.remaining() < size) {
+                return;
+            }
+            checksum.reset();
+            checksum.update(buffer.array(), buffer.position(), size);
+            if ((int) checksum.getValue() != expected) {
+                return;
+            }
+            int end = buffer.position() + size;
+            byte type = buffer.get();
+            int id = buffer.getInt();
+            maxMatchId = Math.max(maxMatchId, id);
+            MatchSession session = sessions.get(id);
+            if (type == NEW && session == null) {
+                byte[] fen = new byte[buffer.getShort()];
+                buffer.get(fen);
+                ChessMatch match = fen.length == 0 ? new ChessMatch() : ChessMatch.fromFen(new String(fen, StandardCharsets.US_ASCII));
+                sessions.put(id, new MatchSession(id, match, 0, this, cache));
+            } else if (type == MOVE && session != null) {
+                long sequence = buffer.getInt();
+                int move = buffer.getShort() & 0xFFFF;
+                // A gap leaves the match where it stopped; failing would keep every other match from coming back
+                if (sequence > session.getView().getVersion() + 1) {
+                    LOGGER.warning("Journal is missing moves of match " + id + " before move " + sequence + ": " + file);
+                } else if (sequence == session.getView().getVersion() + 1) {
+                    session.replay(move);
+                }
+            } else if (type == CLOSE && session != null) {
+                sessions.remove(id);
+                session.discard();
+            }
+            buffer.position(end);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        checkFailure();
+    }
+
+    private void waitForFlusher() throws IOException {
+        try {
+            wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the journal.", e);
+        }
+    }
+
+    private synchronized void checkFailure() throws IOException {
+        if (failure != null) {
+            throw new IOException("The journal failed: " + failure.getMessage(), failure);
+        }
+    }
+
+    private FileChannel openSegment(long number) throws IOException {
+        FileChannel file = FileChannel.open(directory.resolve(String.format("journal-%08d.log", number)),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_BYTES).putInt(MAGIC).putInt(VERSION).putLong(number);
+        header.flip();
+        while (header.hasRemaining()) {
+            file.write(header);
+        }
+        return file;
+    }
+
+    private static List<Path> list(Path directory, String prefix, String suffix) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> stream = Files.list(directory)) {
+            stream.filter(p -> {
+                String name = p.getFileName().toString();
+                return name.startsWith(prefix) && name.endsWith(suffix);
+            }).forEach(files::add);
+        }
+        return files;
+    }
+
+    private static long number(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(name.indexOf('-') + 1, name.lastIndexOf('.')));
+    }
+}
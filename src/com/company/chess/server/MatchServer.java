@@ -0,0 +1,283 @@
+package com.company.chess.server;
+
+import com.company.boardgame.BoardException;
+import com.company.chess.rules.ChessException;
+import com.company.chess.rules.ChessMatch;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Hosts any number of matches over a line protocol on a local TCP port. Each line is one command and gets
+// one reply line, "OK ..." or "ERR message":
+//   NEW [FEN]          starts a match and replies with its id
+//   MOVE id e2e4       plays a UCI move; the reply adds CHECK, CHECKMATE or STALEMATE when they apply
+//   FEN id             replies with the position, without waiting for a move in progress
+//   CLOSE id           ends a match
+//   STATS              replies with the match cache counters
+//   QUIT               closes the connection
+// Matches are not tied to a connection, so two players can each have their own. Every connection has a
+// blocking thread of its own, and replies are flushed once the client has no more commands waiting, so
+// pipelined commands share a write. With a journal, changes are acknowledged only once they are on disk, and
+// the matches open at a crash are back when the server starts again. With a memory budget, idle matches are
+// spilled to disk past it and come back on their next move, see MatchCache.
+public class MatchServer implements Closeable {
+
+    private static final int BACKLOG = 1024;
+    // Journal growth between checkpoints, which bounds the replay at startup
+    private static final long CHECKPOINT_BYTES = 4 << 20;
+    private static final long CHECKPOINT_RETRY_MILLIS = 5000;
+    private static final Logger LOGGER = Logger.getLogger(MatchServer.class.getName());
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService executor;
+    private final ConcurrentHashMap<Integer, MatchSession> sessions = new ConcurrentHashMap<>();
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger nextId = new AtomicInteger();
+    private final LongAdder moves = new LongAdder();
+    private final MatchJournal journal;
+    private final MatchCache cache;
+
+    // Port 0 picks a free port, see getPort().
+    public MatchServer(int port) throws IOException {
+        this(port, null);
+    }
+
+    // Matches are journaled to the directory, and the ones it holds are recovered first. A null directory
+    // keeps matches in memory only.
+    public MatchServer(int port, Path journalDirectory) throws IOException {
+        this(port, journalDirectory, Long.MAX_VALUE);
+    }
+
+    // Open matches take about memoryBudget bytes at most; the least recently played ones beyond it are spilled
+    // to a file. Long.MAX_VALUE keeps them all in memory.
+    public MatchServer(int port, Path journalDirectory, long memoryBudget) throws IOException {
+        cache = new MatchCache(memoryBudget);
+        journal = journalDirectory == null ? null : new MatchJournal(journalDirectory);
+        try {
+            if (journal != null) {
+                sessions.putAll(journal.recover(cache));
+                nextId.set(journal.getMaxMatchId());
+            }
+            cache.evictOverBudget();
+            serverSocket = new ServerSocket(port, BACKLOG, InetAddress.getLoopbackAddress());
+        } catch (IOException e) {
+            if (journal != null) {
+                journal.close();
+            }
+            cache.close();
+            throw e;
+        }
+        executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "match-connection");
+            t.setDaemon(true);
+            return t;
+        });
+        if (journal != null) {
+            executor.execute(this::checkpointLoop);
+        }
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public int getMatchCount() {
+        return sessions.size();
+    }
+
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
+    public long getMoveCount() {
+        return moves.sum();
+    }
+
+    public MatchCache getCache() {
+        return cache;
+    }
+
+    // Accepts connections on a pool thread and returns at once.
+    public void start() {
+        executor.execute(() -> {
+            try {
+                serve();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    // Accepts connections on the calling thread until the server is closed.
+    public void serve() throws IOException {
+        while (true) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (SocketException e) {
+                if (serverSocket.isClosed()) {
+                    return;
+                }
+                throw e;
+            }
+            socket.setTcpNoDelay(true);
+            connections.add(socket);
+            executor.execute(() -> handle(socket));
+        }
+    }
+
+    // Saves every open match to the journal, so recovery starts from here.
+    public void checkpoint() throws IOException {
+        if (journal != null) {
+            journal.checkpoint(sessions.values(), nextId.get());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Socket socket : connections) {
+            socket.close();
+        }
+        executor.shutdownNow();
+        if (journal != null) {
+            journal.close();
+        }
+        cache.close();
+    }
+
+    // A failed checkpoint is logged and tried again later; until one succeeds, recovery just replays more.
+    private void checkpointLoop() {
+        try {
+            while (!serverSocket.isClosed()) {
+                Thread.sleep(100);
+                if (journal.getSegmentBytes() >= CHECKPOINT_BYTES) {
+                    try {
+                        checkpoint();
+                    } catch (IOException e) {
+                        LOGGER.log(Level.WARNING, "Journal checkpoint failed", e);
+                        Thread.sleep(CHECKPOINT_RETRY_MILLIS);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            // The server is closing.
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (Socket s = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.US_ASCII));
+             Writer out = new BufferedWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.US_ASCII))) {
+            String line;
+            while ((line = in.readLine()) != null && !line.equals("QUIT")) {
+                out.write(execute(line));
+                out.write('\n');
+                if (!in.ready()) {
+                    out.flush();
+                }
+            }
+        } catch (IOException e) {
+            // The client went away. Its matches stay open for other connections until closed.
+        } finally {
+            connections.remove(socket);
+        }
+    }
+
+    String execute(String line) {
+        String[] parts = line.split(" ", 3);
+        try {
+            switch (parts[0]) {
+                case "NEW":
+                    String fen = line.length() > 4 ? line.substring(4) : "";
+                    ChessMatch match = fen.isEmpty() ? new ChessMatch() : ChessMatch.fromFen(fen);
+                    int id = nextId.incrementAndGet();
+                    MatchSession session = new MatchSession(id, match, 0, journal, cache);
+                    // Open before it is journaled, so a checkpoint either saves it or keeps its NEW record
+                    sessions.put(id, session);
+                    if (journal != null) {
+                        try {
+                            journal.appendNew(id, fen);
+                        } catch (IOException e) {
+                            sessions.remove(id);
+                            session.discard();
+                            throw e;
+                        }
+                    }
+                    cache.evictOverBudget();
+                    sync();
+                    return "OK " + id;
+                case "MOVE":
+                    if (parts.length < 3) {
+                        return "ERR Usage: MOVE id move";
+                    }
+                    String state = session(parts[1]).move(parts[2]);
+                    cache.evictOverBudget();
+                    sync();
+                    moves.increment();
+                    return state.isEmpty() ? "OK" : "OK " + state;
+                case "FEN":
+                    return parts.length < 2 ? "ERR Usage: FEN id" : "OK " + session(parts[1]).getView().toFen();
+                case "CLOSE":
+                    MatchSession closed = parts.length < 2 ? null : sessions.remove(parseId(parts[1]));
+                    if (closed == null) {
+                        return "ERR No such match.";
+                    }
+                    closed.discard();
+                    if (journal != null) {
+                        journal.appendClose(parseId(parts[1]));
+                    }
+                    sync();
+                    return "OK";
+                case "STATS":
+                    return "OK " + cache;
+                default:
+                    return "ERR Unknown command: " + parts[0];
+            }
+        } catch (BoardException | ChessException | IOException e) {
+            return "ERR " + e.getMessage();
+        }
+    }
+
+    private void sync() throws IOException {
+        if (journal != null) {
+            journal.sync();
+        }
+    }
+
+    private MatchSession session(String id) throws ChessException {
+        MatchSession session = sessions.get(parseId(id));
+        if (session == null) {
+            throw new ChessException("No such match.");
+        }
+        return session;
+    }
+
+    private static int parseId(String id) throws ChessException {
+        try {
+            return Integer.parseInt(id);
+        } catch (NumberFormatException e) {
+            throw new ChessException("Invalid match id: " + id);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.company.chess.server;
+
+import com.company.boardgame.BoardException;
+import com.company.boardgame.MoveList;
+import com.company.chess.rules.ChessException;
+import com.company.chess.rules.ChessMatch;
+import com.company.chess.rules.MatchView;
+import com.company.chess.rules.PieceType;
+import com.company.chess.rules.SharedMatch;
+
+import java.io.IOException;
+
+// A match hosted by the server. Any connection may play in it, so moves are synchronized: on one match they are
+// applied one at a time, while different matches never wait for each other. Reads go to the published view of
+// the SharedMatch and never wait for a move. The cache may spill an idle match to disk, leaving only its last
+// view here; the next move loads it back.
+class MatchSession {
+
+    private static final String PROMOTIONS = " nbrq";
+
+    private final int id;
+    // Null while spilled
+    private volatile SharedMatch match;
+    private volatile MatchView spilledView;
+    private int slot = -1;
+    private boolean closed;
+    // Null when the server keeps no journal
+    private final MatchJournal journal;
+    private final MatchCache cache;
+    private final MoveList moves = new MoveList();
+    private String state;
+
+    // The version is the number of moves already played, which the journal records with every move.
+    MatchSession(int id, ChessMatch match, long version, MatchJournal journal, MatchCache cache) throws BoardException {
+        this.id = id;
+        this.match = new SharedMatch(match, version);
+        this.journal = journal;
+        this.cache = cache;
+        state = computeState();
+        cache.touch(this, size());
+    }
+
+    int getId() {
+        return id;
+    }
+
+    // Plays a move in UCI notation ("e2e4", "e7e8q") and returns the state after it: "", CHECK, CHECKMATE or
+    // STALEMATE. A pawn reaching the last rank without a promotion letter becomes a queen; a letter other than
+    // n, b, r or q, or one on a move that is not a promotion, is an illegal move. The move is journaled
+    // before it is played; the caller syncs the journal before acknowledging it.
+    synchronized String move(String uci) throws BoardException, ChessException, IOException {
+        if (closed) {
+            throw new ChessException("No such match.");
+        }
+        if (state.equals("CHECKMATE") || state.equals("STALEMATE")) {
+            throw new ChessException("The match is over.");
+        }
+        if (uci.length() != 4 && uci.length() != 5) {
+            throw new ChessException("Illegal move: " + uci);
+        }
+        int from = square(uci.charAt(0), uci.charAt(1));
+        int to = square(uci.charAt(2), uci.charAt(3));
+        int promotion = uci.length() == 5 ? PROMOTIONS.indexOf(uci.charAt(4)) : PieceType.QUEEN.getValue();
+        if (promotion < 1) {
+            throw new ChessException("Illegal move: " + uci);
+        }
+        if (match == null) {
+            load();
+            cache.miss();
+        } else {
+            cache.hit();
+        }
+        SharedMatch match = this.match;
+        moves.clear();
+        match.generateLegalMoves(moves);
+        int move = 0;
+        for (int i = 0; i < moves.size() && move == 0; i++) {
+            int m = moves.get(i);
+            // A promotion letter only fits a promotion
+            if (MoveList.from(m) == from && MoveList.to(m) == to
+                    && (MoveList.flags(m) == promotion || MoveList.flags(m) == 0 && uci.length() == 4)) {
+                move = m;
+            }
+        }
+        if (move == 0) {
+            throw new ChessException("Illegal move: " + uci);
+        }
+        if (journal != null) {
+            journal.appendMove(id, match.getVersion() + 1, move);
+        }
+        match.makeMove(move);
+        state = computeState();
+        cache.touch(this, size());
+        return state;
+    }
+
+    // Plays a move read back from the journal.
+    synchronized void replay(int move) throws BoardException, ChessException, IOException {
+        if (match == null) {
+            load();
+        }
+        match.makeMove(move);
+        state = computeState();
+        cache.touch(this, size());
+    }
+
+    // Writes the match to a slot of the spill file and lets it go; false when it is already out, closed, or
+    // too large for a slot. The undo history does not survive, which the server never uses.
+    synchronized boolean evict() throws IOException {
+        SharedMatch match = this.match;
+        if (match == null || closed || match.getEncodedSize() > MatchSpillFile.SLOT_BYTES) {
+            return false;
+        }
+        MatchSpillFile spill = cache.spill();
+        int slot = spill.allocate();
+        match.writeTo(spill.slot(slot));
+        this.slot = slot;
+        spilledView = match.getView();
+        this.match = null;
+        cache.removed(this);
+        return true;
+    }
+
+    // Releases the match for good, in memory or spilled.
+    synchronized void discard() throws IOException {
+        closed = true;
+        if (slot >= 0) {
+            cache.spill().free(slot);
+            slot = -1;
+        }
+        cache.removed(this);
+    }
+
+    private void load() throws ChessException, IOException {
+        MatchSpillFile spill = cache.spill();
+        match = new SharedMatch(ChessMatch.readFrom(spill.slot(slot)), spilledView.getVersion());
+        spill.free(slot);
+        slot = -1;
+    }
+
+    private long size() {
+        return MatchCache.MATCH_BYTES + MatchCache.PLY_BYTES * getView().getTurn();
+    }
+
+    // -1 off the board, which matches no move
+    private static int square(char column, char row) {
+        if (column < 'a' || column > 'h' || row < '1' || row > '8') {
+            return -1;
+        }
+        return ('8' - row) * 8 + column - 'a';
+    }
+
+    MatchView getView() {
+        SharedMatch match = this.match;
+        return match != null ? match.getView() : spilledView;
+    }
+
+    // The view once a move in progress is played. A move is journaled before it is played, so a checkpoint
+    // must not save the position from before it, or it would drop the segment that holds the move.
+    synchronized MatchView getSettledView() {
+        return getView();
+    }
+
+    // Only called with the match in memory
+    private String computeState() throws BoardException {
+        moves.clear();
+        match.generateLegalMoves(moves);
+        if (moves.isEmpty()) {
+            return match.getView().getCheck() ? "CHECKMATE" : "STALEMATE";
+        }
+        return match.getView().getCheck() ? "CHECK" : "";
+    }
+}
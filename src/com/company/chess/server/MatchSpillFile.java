@@ -0,0 +1,78 @@
+package com.company.chess.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Fixed-size slots in a memory-mapped file, each holding one match evicted from memory as written by
+// ChessMatch.writeTo(). The file grows by whole mapped chunks and freed slots are reused. It is scratch space
+// for the running server, deleted on close; the journal is what survives a crash.
+class MatchSpillFile implements Closeable {
+
+    // An encoded match of up to 32 pieces takes at most 119 bytes
+    static final int SLOT_BYTES = 128;
+    private static final int CHUNK_SLOTS = 8192;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final List<MappedByteBuffer> chunks = new ArrayList<>();
+    private int[] free = new int[64];
+    private int freeCount;
+    private int used;
+
+    MatchSpillFile(Path path) throws IOException {
+        this.path = path;
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    synchronized int allocate() throws IOException {
+        if (freeCount == 0) {
+            long offset = (long) chunks.size() * CHUNK_SLOTS * SLOT_BYTES;
+            chunks.add(channel.map(FileChannel.MapMode.READ_WRITE, offset, (long) CHUNK_SLOTS * SLOT_BYTES));
+            if (free.length < CHUNK_SLOTS) {
+                free = Arrays.copyOf(free, CHUNK_SLOTS);
+            }
+            // Pushed in reverse, so slots are handed out in file order
+            for (int i = CHUNK_SLOTS - 1; i >= 0; i--) {
+                free[freeCount++] = (chunks.size() - 1) * CHUNK_SLOTS + i;
+            }
+        }
+        used++;
+        return free[--freeCount];
+    }
+
+    synchronized void free(int slot) {
+        if (freeCount == free.length) {
+            free = Arrays.copyOf(free, freeCount * 2);
+        }
+        free[freeCount++] = slot;
+        used--;
+    }
+
+    synchronized int getUsedSlots() {
+        return used;
+    }
+
+    // A buffer over the slot alone, positioned at its start; threads may use different slots at once.
+    synchronized ByteBuffer slot(int slot) {
+        ByteBuffer buffer = chunks.get(slot / CHUNK_SLOTS).duplicate();
+        int offset = slot % CHUNK_SLOTS * SLOT_BYTES;
+        buffer.position(offset).limit(offset + SLOT_BYTES);
+        return buffer.slice();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+        Files.deleteIfExists(path);
+    }
+}
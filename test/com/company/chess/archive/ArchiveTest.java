@@ -0,0 +1,152 @@
+package com.company.chess.archive;
+
+import com.company.boardgame.MoveList;
+import com.company.chess.pgn.GameResult;
+import com.company.chess.rules.ChessMatch;
+import com.company.chess.rules.ChessPosition;
+import com.company.chess.rules.PieceType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ArchiveTest {
+
+    // The initial position, given as a FEN, is stored like no FEN at all.
+    private static final String[] STARTS = {
+            null,
+            ArchiveWriter.INITIAL_FEN,
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+            "n1n5/PPPk4/8/8/8/8/4Kppp/5N1N b - - 0 1",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1"
+    };
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void roundTripsRandomGames() throws Exception {
+        Random random = new Random(1);
+        MoveList legal = new MoveList();
+        List<String> starts = new ArrayList<>();
+        List<int[]> games = new ArrayList<>();
+        List<String> fens = new ArrayList<>();
+        List<GameResult> results = new ArrayList<>();
+        int promotions = 0;
+        int underpromotions = 0;
+
+        Path path = directory.resolve("games.chs");
+        try (ArchiveWriter writer = new ArchiveWriter(path)) {
+            for (int game = 0; game < 300; game++) {
+                String start = STARTS[game % STARTS.length];
+                ChessMatch match = start == null ? new ChessMatch() : ChessMatch.fromFen(start);
+                MoveList moves = new MoveList();
+                for (int ply = random.nextInt(200); ply > 0; ply--) {
+                    legal.clear();
+                    match.generateLegalMoves(legal);
+                    if (legal.isEmpty()) {
+                        break;
+                    }
+                    int move = legal.get(random.nextInt(legal.size()));
+                    if (MoveList.flags(move) != 0) {
+                        promotions++;
+                        underpromotions += MoveList.flags(move) == PieceType.QUEEN.getValue() ? 0 : 1;
+                    }
+                    match.makeMove(move);
+                    moves.add(move);
+                }
+                GameResult result = GameResult.fromOrdinal(random.nextInt(GameResult.values().length));
+                writer.writeGame(start, moves, result);
+                starts.add(ArchiveWriter.INITIAL_FEN.equals(start) ? null : start);
+                games.add(toArray(moves));
+                fens.add(match.toFen());
+                results.add(result);
+            }
+            assertEquals(300, writer.getGameCount());
+        }
+        assertTrue(promotions > 50 && underpromotions > 30, promotions + " promotions");
+
+        try (ArchiveReader reader = new ArchiveReader(path)) {
+            assertEquals(games.size(), reader.getGameCount());
+            // Out of order, as random access allows
+            for (int i = games.size() - 1; i >= 0; i--) {
+                ArchivedGame game = reader.readGame(i);
+                assertEquals(i, game.getIndex());
+                assertEquals(starts.get(i), game.getStartFen());
+                assertArrayEquals(games.get(i), toArray(game.getMoves()));
+                assertEquals(results.get(i), game.getResult());
+                assertEquals(fens.get(i), game.getMatch().toFen());
+            }
+            assertThrows(IndexOutOfBoundsException.class, () -> reader.readGame(games.size()));
+        }
+    }
+
+    // A game played through the UI: the promotion is recorded once, after the player picked the piece.
+    @Test
+    void recordsPlayedGamesWithTheChosenPromotion() throws Exception {
+        ChessMatch match = ChessMatch.fromFen("8/1P1k4/8/8/8/8/2p5/4K2R w K - 0 1");
+        Path path = directory.resolve("played.chs");
+        try (ArchiveWriter writer = new ArchiveWriter(path)) {
+            writer.beginGame(match);
+            play(writer, match, "e1g1", null);
+            play(writer, match, "c2c1", "N");
+            play(writer, match, "b7b8", "R");
+            play(writer, match, "c1e2", null);
+            assertThrows(IllegalArgumentException.class, () -> writer.addMove(MoveList.move(0, 63, 0)));
+            writer.endGame(GameResult.UNKNOWN);
+        }
+
+        try (ArchiveReader reader = new ArchiveReader(path)) {
+            ArchivedGame game = reader.readGame(0);
+            assertEquals("8/1P1k4/8/8/8/8/2p5/4K2R w K - 0 1", game.getStartFen());
+            assertEquals(4, game.getMoves().size());
+            assertEquals(PieceType.KNIGHT.getValue(), MoveList.flags(game.getMoves().get(1)));
+            assertEquals(match.toFen(), game.getMatch().toFen());
+            assertEquals("1R6/3k4/8/8/8/8/4n3/5RK1 w - - 1 3", game.getMatch().toFen());
+        }
+    }
+
+    @Test
+    void rejectsOtherAndTruncatedFiles() throws Exception {
+        Path other = directory.resolve("other.chs");
+        Files.write(other, new byte[64]);
+        assertThrows(IOException.class, () -> new ArchiveReader(other));
+
+        Path truncated = directory.resolve("truncated.chs");
+        ArchiveWriter writer = new ArchiveWriter(truncated);
+        writer.writeGame(null, new MoveList(), GameResult.DRAW);
+        writer.close();
+        byte[] bytes = Files.readAllBytes(truncated);
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 1));
+        assertThrows(IOException.class, () -> new ArchiveReader(truncated));
+    }
+
+    private static void play(ArchiveWriter writer, ChessMatch match, String move, String promotion) throws Exception {
+        match.performChessMove(new ChessPosition(move.charAt(0), move.charAt(1) - '0'),
+                new ChessPosition(move.charAt(2), move.charAt(3) - '0'));
+        if (promotion != null) {
+            match.replacePromotedPiece(promotion);
+        }
+        writer.addMove(match.getLastMove());
+    }
+
+    private static int[] toArray(MoveList moves) {
+        int[] result = new int[moves.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = moves.get(i);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,136 @@
+package com.company.chess.archive;
+
+import com.company.boardgame.MoveList;
+import com.company.chess.pgn.GameResult;
+import com.company.chess.rules.ChessMatch;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PositionIndexTest {
+
+    private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+
+    @TempDir
+    Path directory;
+
+    // More games than one batch, so the index is merged from several runs.
+    @Test
+    void buildsTheSameIndexAsABruteForceReplay() throws Exception {
+        Map<Long, TreeMap<Integer, GameResult>> expected = new HashMap<>();
+        Path archive = writeArchive("games.chs", 5000, 0, new Random(1), expected);
+
+        try (ArchiveReader reader = new ArchiveReader(archive)) {
+            ForkJoinPool pool = new ForkJoinPool(3);
+            try {
+                PositionIndex index = PositionIndex.build(reader, 0, directory.resolve("games.idx"), pool);
+                assertEquals(5000, index.getGameCount());
+                assertMatches(expected, index);
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    @Test
+    void mergesIndexesOfSeveralArchives() throws Exception {
+        Random random = new Random(2);
+        Map<Long, TreeMap<Integer, GameResult>> expected = new HashMap<>();
+        Path first = writeArchive("first.chs", 300, 0, random, expected);
+        Path second = writeArchive("second.chs", 200, 300, random, expected);
+
+        Path firstIndex = directory.resolve("first.idx");
+        Path secondIndex = directory.resolve("second.idx");
+        try (ArchiveReader a = new ArchiveReader(first); ArchiveReader b = new ArchiveReader(second)) {
+            PositionIndex.build(a, 0, firstIndex, ForkJoinPool.commonPool());
+            PositionIndex.build(b, 300, secondIndex, ForkJoinPool.commonPool());
+        }
+        PositionIndex merged = PositionIndex.merge(List.of(firstIndex, secondIndex), directory.resolve("merged.idx"));
+        assertEquals(500, merged.getGameCount());
+        assertMatches(expected, merged);
+
+        // The games of the first index are in both inputs and still listed once
+        PositionIndex again = PositionIndex.merge(List.of(directory.resolve("merged.idx"), firstIndex), directory.resolve("again.idx"));
+        assertMatches(expected, again);
+
+        assertThrows(IllegalArgumentException.class, () -> PositionIndex.merge(List.of(firstIndex), firstIndex));
+    }
+
+    @Test
+    void indexesAnEmptyArchive() throws Exception {
+        Path archive = directory.resolve("empty.chs");
+        new ArchiveWriter(archive).close();
+        try (ArchiveReader reader = new ArchiveReader(archive)) {
+            PositionIndex index = PositionIndex.build(reader, 0, directory.resolve("empty.idx"), ForkJoinPool.commonPool());
+            assertEquals(0, index.getPositionCount());
+            assertEquals(0, index.count(new ChessMatch().getZobristKey()));
+            assertEquals(0, index.games(new ChessMatch().getZobristKey()).length);
+        }
+    }
+
+    // Short random games, from two start positions, so that many positions are shared between games.
+    private Path writeArchive(String name, int games, int firstGame, Random random,
+                              Map<Long, TreeMap<Integer, GameResult>> expected) throws Exception {
+        Path path = directory.resolve(name);
+        MoveList legal = new MoveList();
+        try (ArchiveWriter writer = new ArchiveWriter(path)) {
+            for (int game = 0; game < games; game++) {
+                String start = game % 4 == 3 ? KIWIPETE : null;
+                ChessMatch match = start == null ? new ChessMatch() : ChessMatch.fromFen(start);
+                GameResult result = GameResult.fromOrdinal(random.nextInt(GameResult.values().length));
+                MoveList moves = new MoveList();
+                record(expected, match, firstGame + game, result);
+                for (int ply = random.nextInt(12); ply > 0; ply--) {
+                    legal.clear();
+                    match.generateLegalMoves(legal);
+                    if (legal.isEmpty()) {
+                        break;
+                    }
+                    // Mostly the first few moves, for transpositions
+                    int move = legal.get(random.nextInt(Math.min(legal.size(), 4)));
+                    match.makeMove(move);
+                    moves.add(move);
+                    record(expected, match, firstGame + game, result);
+                }
+                writer.writeGame(start, moves, result);
+            }
+        }
+        return path;
+    }
+
+    private static void record(Map<Long, TreeMap<Integer, GameResult>> expected, ChessMatch match, int game, GameResult result) {
+        expected.computeIfAbsent(match.getZobristKey(), k -> new TreeMap<>()).put(game, result);
+    }
+
+    private static void assertMatches(Map<Long, TreeMap<Integer, GameResult>> expected, PositionIndex index) throws Exception {
+        assertEquals(expected.size(), index.getPositionCount());
+        int postings = 0;
+        for (Map.Entry<Long, TreeMap<Integer, GameResult>> entry : expected.entrySet()) {
+            TreeMap<Integer, GameResult> games = entry.getValue();
+            postings += games.size();
+            long key = entry.getKey();
+            assertEquals(games.size(), index.count(key));
+            assertArrayEquals(games.keySet().stream().mapToInt(Integer::intValue).toArray(), index.games(key));
+            PositionStats stats = index.stats(key);
+            assertEquals(games.size(), stats.getGames());
+            for (GameResult result : GameResult.values()) {
+                assertEquals(games.values().stream().filter(r -> r == result).count(), stats.getCount(result));
+            }
+        }
+        assertEquals(postings, index.getPostingCount());
+        // Some positions are reached by many games
+        assertTrue(index.count(new ChessMatch().getZobristKey()) > 1);
+    }
+}
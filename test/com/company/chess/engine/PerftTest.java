@@ -0,0 +1,40 @@
+package com.company.chess.engine;
+
+import com.company.chess.rules.BitboardPosition;
+import com.company.chess.rules.ChessMatch;
+import com.company.chess.rules.CompactMatch;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PerftTest {
+
+    // Across the six positions this already covers castling, en passant and promotions, in well under a second.
+    private static final int DEPTH = 3;
+
+    @ParameterizedTest
+    @EnumSource(PerftPosition.class)
+    void matchesReferenceCountsOnChessMatch(PerftPosition position) throws Exception {
+        assertCounts(position, ChessMatch.fromFen(position.getFen()));
+    }
+
+    @ParameterizedTest
+    @EnumSource(PerftPosition.class)
+    void matchesReferenceCountsOnCompactMatch(PerftPosition position) throws Exception {
+        assertCounts(position, CompactMatch.fromFen(position.getFen()));
+    }
+
+    private static void assertCounts(PerftPosition position, BitboardPosition match) throws Exception {
+        long key = match.getZobristKey();
+        Perft perft = new Perft(match);
+        for (int depth = 1; depth <= DEPTH; depth++) {
+            assertEquals(position.getNodes(depth), perft.perft(depth), position + " at depth " + depth);
+        }
+        assertEquals(position.getNodes(DEPTH), perft.parallelPerft(DEPTH, ForkJoinPool.commonPool()));
+        // Every move was undone
+        assertEquals(key, match.getZobristKey());
+    }
+}
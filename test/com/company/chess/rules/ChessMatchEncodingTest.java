@@ -0,0 +1,105 @@
+package com.company.chess.rules;
+
+import com.company.boardgame.MoveList;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ChessMatchEncodingTest {
+
+    private static final String[] POSITIONS = {
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "rnbqkbnr/pppp1ppp/8/8/3Pp3/8/PPP1PPPP/RNBQKBNR b KQkq d3 0 3",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "n1n5/PPPk4/8/8/8/8/4Kppp/5N1N b - - 0 1"
+    };
+
+    @Test
+    void roundTripsRandomGames() throws Exception {
+        Random random = new Random(1);
+        MoveList moves = new MoveList();
+        for (String fen : POSITIONS) {
+            for (int game = 0; game < 50; game++) {
+                ChessMatch match = ChessMatch.fromFen(fen);
+                assertRoundTrip(match);
+                for (int ply = 0; ply < 80; ply++) {
+                    moves.clear();
+                    match.generateLegalMoves(moves);
+                    if (moves.isEmpty()) {
+                        break;
+                    }
+                    match.makeMove(moves.get(random.nextInt(moves.size())));
+                    assertRoundTrip(match);
+                }
+            }
+        }
+    }
+
+    // Move counts from 15 up take the escaped form.
+    @Test
+    void roundTripsLargeMoveCounts() throws Exception {
+        ChessMatch match = new ChessMatch();
+        int[] shuffle = {MoveList.move(62, 45, 0), MoveList.move(6, 21, 0), MoveList.move(45, 62, 0), MoveList.move(21, 6, 0)};
+        for (int i = 0; i < 80; i++) {
+            match.makeMove(shuffle[i % shuffle.length]);
+        }
+        assertRoundTrip(match);
+    }
+
+    @Test
+    void rejectsOtherVersions() throws Exception {
+        ByteBuffer buffer = encode(new ChessMatch());
+        // Version 1 is the only one so far
+        buffer.put(4, (byte) 2);
+        ChessException e = assertThrows(ChessException.class, () -> ChessMatch.readFrom(buffer));
+        assertEquals("Unsupported match encoding version.", e.getMessage());
+    }
+
+    @Test
+    void rejectsOtherDataAndTruncation() throws Exception {
+        ByteBuffer buffer = encode(new ChessMatch());
+        buffer.putInt(0, 0);
+        assertThrows(ChessException.class, () -> ChessMatch.readFrom(buffer));
+
+        ByteBuffer truncated = encode(new ChessMatch());
+        truncated.limit(truncated.limit() - 1);
+        assertThrows(ChessException.class, () -> ChessMatch.readFrom(truncated));
+    }
+
+    private static void assertRoundTrip(ChessMatch match) throws Exception {
+        ByteBuffer buffer = encode(match);
+        assertEquals(match.getEncodedSize(), buffer.remaining());
+        ChessMatch copy = ChessMatch.readFrom(buffer);
+        assertEquals(0, buffer.remaining());
+        assertEquals(match.toFen(), copy.toFen());
+        assertEquals(match.getZobristKey(), copy.getZobristKey());
+        assertEquals(match.getLastMove(), copy.getLastMove());
+        assertEquals(match.getCheckmate(), copy.getCheckmate());
+        assertEquals(match.getStalemate(), copy.getStalemate());
+        assertArrayEquals(legalMoves(match), legalMoves(copy));
+        // Move counts and captured pieces only show in the bytes
+        assertEquals(encode(match), encode(copy));
+    }
+
+    private static ByteBuffer encode(ChessMatch match) {
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        match.writeTo(buffer);
+        return buffer.flip();
+    }
+
+    private static int[] legalMoves(ChessMatch match) throws Exception {
+        MoveList moves = new MoveList();
+        match.generateLegalMoves(moves);
+        int[] result = new int[moves.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = moves.get(i);
+        }
+        return result;
+    }
+}
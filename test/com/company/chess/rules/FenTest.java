@@ -0,0 +1,148 @@
+package com.company.chess.rules;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FenTest {
+
+    private static final String[] POSITIONS = {
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "rnbqkbnr/pppp1ppp/8/8/3Pp3/8/PPP1PPPP/RNBQKBNR b KQkq d3 0 3",
+            "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3",
+            "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+            "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 47 120"
+    };
+
+    @Test
+    void roundTripsPositionsThroughTheReader() throws Exception {
+        String text = String.join("\n", POSITIONS) + "\n";
+        FenReader fromText = new FenReader(text);
+        FenReader fromBytes = new FenReader(ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII)));
+        PositionBuffer position = new PositionBuffer();
+        for (String fen : POSITIONS) {
+            for (FenReader reader : new FenReader[] {fromText, fromBytes}) {
+                assertTrue(reader.next(position));
+                assertEquals(fen, position.toFen());
+                ChessMatch match = ChessMatch.fromPosition(position);
+                assertEquals(fen, match.toFen());
+                assertEquals(match.getZobristKey(), position.getZobristKey());
+                assertEquals(fen, CompactMatch.fromFen(fen).toFen());
+            }
+        }
+        assertFalse(fromText.next(position));
+        assertFalse(fromBytes.next(position));
+    }
+
+    // Only placement and side are required; whatever follows the move counters is ignored.
+    @Test
+    void readsShortAndAnnotatedLines() throws Exception {
+        PositionBuffer position = new PositionBuffer();
+        FenReader reader = new FenReader("\r\n  \n4k3/8/8/8/8/8/8/4K3 b\r\n"
+                + "4k3/8/8/8/8/8/8/R3K3 w Q -\t3 40 bm Ra8+; id \"x\";\n");
+        assertTrue(reader.next(position));
+        assertEquals("4k3/8/8/8/8/8/8/4K3 b - - 0 1", position.toFen());
+        assertTrue(reader.next(position));
+        assertEquals("4k3/8/8/8/8/8/8/R3K3 w Q - 3 40", position.toFen());
+        assertFalse(reader.next(position));
+        assertEquals(2, reader.getLine());
+    }
+
+    @Test
+    void rejectsMalformedLines() {
+        String[][] cases = {
+                {"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP w KQkq - 0 1", "piece placement"},
+                {"rnbqkbnr/pppppppp/9/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", "piece placement"},
+                {"rnbqkbnr/ppppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", "piece placement"},
+                {"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNX w KQkq - 0 1", "piece placement"},
+                {"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR", "side to move"},
+                {"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR x KQkq - 0 1", "side to move"},
+                {"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQxq - 0 1", "castling rights"},
+                {"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq e3 0 1", "en passant square"},
+                {"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq i6 0 1", "en passant square"},
+                {"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - x 1", "move counter"},
+                {"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1234567", "move counter"},
+                {"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 0", "move number"}
+        };
+        PositionBuffer position = new PositionBuffer();
+        for (String[] c : cases) {
+            ChessException e = assertThrows(ChessException.class, () -> new FenReader(c[0]).next(position), c[0]);
+            assertEquals("Invalid FEN " + c[1] + " on line 1.", e.getMessage());
+        }
+        assertThrows(ChessException.class, () -> ChessMatch.fromFen("8/8/8/8/8/8/8/4K3 w - - 0 1"));
+        assertThrows(ChessException.class, () -> CompactMatch.fromFen(""));
+    }
+
+    // Each bad line is reported with its number and the next line reads as if nothing had happened.
+    @Test
+    void keepsReadingAfterABadLine() throws Exception {
+        String text = POSITIONS[0] + "\n"
+                + "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq z9 0 1 trailing\n"
+                + "\n"
+                + "8/8/8/8/8/8/8 w - - 0 1\n"
+                + POSITIONS[1] + "\n";
+        for (FenReader reader : new FenReader[] {new FenReader(text), new FenReader(ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII)))}) {
+            PositionBuffer position = new PositionBuffer();
+            List<String> read = new ArrayList<>();
+            List<String> errors = new ArrayList<>();
+            while (true) {
+                try {
+                    if (!reader.next(position)) {
+                        break;
+                    }
+                    read.add(position.toFen());
+                } catch (ChessException e) {
+                    errors.add(e.getMessage());
+                }
+            }
+            assertEquals(List.of(POSITIONS[0], POSITIONS[1]), read);
+            assertEquals(List.of("Invalid FEN en passant square on line 2.", "Invalid FEN piece placement on line 3."), errors);
+        }
+    }
+
+    // The mated side is the one to move, whichever way the mate was played.
+    @Test
+    void roundTripsMatedPositions() throws Exception {
+        assertMated(play("f2f3", "e7e5", "g2g4", "d8h4"), Color.WHITE,
+                "rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3");
+        assertMated(play("e2e4", "e7e5", "f1c4", "b8c6", "d1h5", "g8f6", "h5f7"), Color.BLACK,
+                "r1bqkb1r/pppp1Qpp/2n2n2/4p3/2B1P3/8/PPPP1PPP/RNB1K1NR b KQkq - 0 4");
+    }
+
+    private static void assertMated(ChessMatch match, Color mated, String fen) throws Exception {
+        assertTrue(match.getCheckmate());
+        assertEquals(mated, match.getCurrentPlayer());
+        assertEquals(fen, match.toFen());
+        assertEquals(mated, match.snapshot().getCurrentPlayer());
+
+        PositionBuffer position = new PositionBuffer();
+        position.load(match);
+        assertEquals(match.getZobristKey(), position.getZobristKey());
+
+        ChessMatch read = ChessMatch.fromFen(fen);
+        assertTrue(read.getCheckmate());
+        assertFalse(read.getStalemate());
+        assertEquals(fen, read.toFen());
+        assertEquals(match.getZobristKey(), read.getZobristKey());
+        assertEquals(match.getFullmoveNumber(), read.getFullmoveNumber());
+    }
+
+    private static ChessMatch play(String... moves) throws Exception {
+        ChessMatch match = new ChessMatch();
+        for (String move : moves) {
+            match.performChessMove(new ChessPosition(move.charAt(0), move.charAt(1) - '0'),
+                    new ChessPosition(move.charAt(2), move.charAt(3) - '0'));
+        }
+        return match;
+    }
+}
@@ -0,0 +1,134 @@
+package com.company.chess.server;
+
+import com.company.boardgame.MoveList;
+import com.company.chess.engine.Perft;
+import com.company.chess.rules.CompactMatch;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MatchCacheTest {
+
+    // Room for three new matches
+    private static final long BUDGET = 3 * MatchCache.MATCH_BYTES + 1024;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void spillsTheLeastRecentlyPlayedMatches() throws Exception {
+        try (MatchServer server = new MatchServer(0, null, BUDGET)) {
+            MatchCache cache = server.getCache();
+            for (int i = 1; i <= 5; i++) {
+                assertEquals("OK " + i, server.execute("NEW"));
+            }
+            assertEquals(3, cache.getResidentCount());
+            assertEquals(2, cache.getSpilledCount());
+            assertEquals(2, cache.getEvictions());
+            assertTrue(cache.getResidentBytes() <= BUDGET);
+
+            // Matches 1 and 2 went out first; reading them does not bring them back
+            assertEquals("OK rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", server.execute("FEN 1"));
+            assertEquals(0, cache.getMisses());
+
+            assertEquals("OK", server.execute("MOVE 1 e2e4"));
+            assertEquals(1, cache.getMisses());
+            assertEquals(3, cache.getEvictions());
+            assertEquals("OK", server.execute("MOVE 1 e7e5"));
+            assertEquals(1, cache.getHits());
+            assertEquals("OK rnbqkbnr/pppp1ppp/8/4p3/4P3/8/PPPP1PPP/RNBQKBNR w KQkq e6 0 2", server.execute("FEN 1"));
+        }
+    }
+
+    @Test
+    void reloadsSpilledMatchesTransparently() throws Exception {
+        try (MatchServer server = new MatchServer(0, null, BUDGET)) {
+            MatchCache cache = server.getCache();
+            int count = 12;
+            String kiwipete = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+            CompactMatch[] mirrors = new CompactMatch[count];
+            int[] ids = new int[count];
+            for (int i = 0; i < count; i++) {
+                boolean fromFen = i % 3 == 0;
+                ids[i] = Integer.parseInt(server.execute(fromFen ? "NEW " + kiwipete : "NEW").substring(3));
+                mirrors[i] = fromFen ? CompactMatch.fromFen(kiwipete) : new CompactMatch();
+            }
+
+            Random random = new Random(1);
+            MoveList moves = new MoveList();
+            int played = 0;
+            for (int step = 0; step < 3000; step++) {
+                int i = random.nextInt(count);
+                moves.clear();
+                mirrors[i].generateLegalMoves(moves);
+                if (moves.isEmpty() || mirrors[i].getTurn() > 100) {
+                    assertEquals("OK", server.execute("CLOSE " + ids[i]));
+                    ids[i] = Integer.parseInt(server.execute("NEW").substring(3));
+                    mirrors[i] = new CompactMatch();
+                    continue;
+                }
+                int move = moves.get(random.nextInt(moves.size()));
+                String reply = server.execute("MOVE " + ids[i] + " " + Perft.toUci(move));
+                assertTrue(reply.startsWith("OK"), reply);
+                mirrors[i].makeMove(move);
+                played++;
+                int j = random.nextInt(count);
+                assertEquals("OK " + mirrors[j].toFen(), server.execute("FEN " + ids[j]));
+            }
+
+            assertEquals(played, cache.getHits() + cache.getMisses());
+            assertTrue(cache.getMisses() > 0);
+            assertTrue(cache.getResidentBytes() <= BUDGET);
+            assertEquals(count, cache.getResidentCount() + cache.getSpilledCount());
+
+            for (int id : ids) {
+                assertEquals("OK", server.execute("CLOSE " + id));
+            }
+            assertEquals(0, cache.getResidentCount());
+            assertEquals(0, cache.getResidentBytes());
+            assertEquals(0, cache.getSpilledCount());
+        }
+    }
+
+    // A checkpoint saves spilled matches from their last view, and recovery spills again past the budget.
+    @Test
+    void checkpointsAndRecoversSpilledMatches() throws Exception {
+        String[] fens = new String[5];
+        try (MatchServer server = new MatchServer(0, directory, BUDGET)) {
+            for (int i = 1; i <= 5; i++) {
+                server.execute("NEW");
+                assertEquals("OK", server.execute("MOVE " + i + " " + (char) ('a' + i) + "2" + (char) ('a' + i) + "4"));
+            }
+            server.checkpoint();
+            assertEquals("OK", server.execute("MOVE 1 e7e5"));
+            for (int i = 1; i <= 5; i++) {
+                fens[i - 1] = server.execute("FEN " + i);
+            }
+        }
+        try (MatchServer recovered = new MatchServer(0, directory, BUDGET)) {
+            assertEquals(3, recovered.getCache().getResidentCount());
+            assertEquals(2, recovered.getCache().getSpilledCount());
+            for (int i = 1; i <= 5; i++) {
+                assertEquals(fens[i - 1], recovered.execute("FEN " + i));
+                assertTrue(recovered.execute("MOVE " + i + (i == 1 ? " g1f3" : " g8f6")).startsWith("OK"));
+            }
+        }
+    }
+
+    @Test
+    void keepsEveryMatchWithoutABudget() throws Exception {
+        try (MatchServer server = new MatchServer(0)) {
+            for (int i = 1; i <= 50; i++) {
+                server.execute("NEW");
+            }
+            assertEquals(50, server.getCache().getResidentCount());
+            assertEquals(0, server.getCache().getEvictions());
+            assertTrue(server.execute("STATS").startsWith("OK 50 matches in memory"));
+        }
+    }
+}
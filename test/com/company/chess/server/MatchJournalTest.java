@@ -0,0 +1,161 @@
+package com.company.chess.server;
+
+import com.company.boardgame.MoveList;
+import com.company.chess.rules.ChessMatch;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MatchJournalTest {
+
+    private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+
+    @TempDir
+    Path directory;
+
+    // The first server is never closed, as in a crash; the second starts from what reached the disk.
+    @Test
+    void recoversAcknowledgedMatchesAcrossACheckpoint() throws Exception {
+        MatchServer crashed = new MatchServer(0, directory);
+        assertEquals("OK 1", crashed.execute("NEW"));
+        assertEquals("OK 2", crashed.execute("NEW " + KIWIPETE));
+        assertEquals("OK 3", crashed.execute("NEW"));
+        play(crashed, 1, "e2e4", "e7e5", "g1f3");
+        play(crashed, 2, "e1g1", "e8c8");
+        crashed.checkpoint();
+        play(crashed, 1, "b8c6", "f1b5");
+        play(crashed, 2, "d5e6");
+        assertEquals("OK", crashed.execute("CLOSE 3"));
+        assertEquals("OK 4", crashed.execute("NEW"));
+        play(crashed, 4, "d2d4");
+
+        try (MatchServer recovered = new MatchServer(0, directory)) {
+            assertEquals(3, recovered.getMatchCount());
+            for (int id : new int[] {1, 2, 4}) {
+                assertEquals(crashed.execute("FEN " + id), recovered.execute("FEN " + id));
+            }
+            assertEquals("ERR No such match.", recovered.execute("FEN 3"));
+            assertEquals("OK 5", recovered.execute("NEW"));
+            play(recovered, 1, "a7a6");
+        } finally {
+            crashed.close();
+        }
+    }
+
+    @Test
+    void ignoresATornRecordAtTheEnd() throws Exception {
+        try (MatchServer server = new MatchServer(0, directory)) {
+            server.execute("NEW");
+            play(server, 1, "e2e4", "c7c5");
+        }
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.filter(p -> p.getFileName().toString().endsWith(".log")).sorted().reduce((a, b) -> b).get();
+        }
+        Files.write(segment, new byte[] {0, 11, 1, 2, 3, 4, 2, 0}, StandardOpenOption.APPEND);
+
+        try (MatchServer recovered = new MatchServer(0, directory)) {
+            assertEquals("OK rnbqkbnr/pp1ppppp/8/2p5/4P3/8/PPPP1PPP/RNBQKBNR w KQkq c6 0 2", recovered.execute("FEN 1"));
+        }
+    }
+
+    // A checkpoint that arrives between journaling a move and playing it must wait for the move.
+    @Test
+    void checkpointWaitsForAMoveInProgress() throws Exception {
+        MatchCache cache = new MatchCache(Long.MAX_VALUE);
+        int move = MoveList.move(52, 36, 0);
+        try (MatchJournal journal = new MatchJournal(directory)) {
+            MatchSession session = new MatchSession(1, new ChessMatch(), 0, journal, cache);
+            journal.appendNew(1, "");
+            Thread checkpoint;
+            synchronized (session) {
+                journal.appendMove(1, 1, move);
+                checkpoint = new Thread(() -> {
+                    try {
+                        journal.checkpoint(Map.of(1, session).values(), 1);
+                    } catch (Exception e) {
+                        throw new AssertionError(e);
+                    }
+                });
+                checkpoint.start();
+                while (checkpoint.isAlive() && !blockedOn(checkpoint, session)) {
+                    Thread.sleep(1);
+                }
+                session.replay(move);
+            }
+            checkpoint.join();
+            play(journal, session, 2, MoveList.move(12, 28, 0));
+        }
+
+        try (MatchJournal journal = new MatchJournal(directory)) {
+            MatchSession session = journal.recover(cache).get(1);
+            assertEquals(2, session.getView().getVersion());
+            assertEquals("rnbqkbnr/pppp1ppp/8/4p3/4P3/8/PPPP1PPP/RNBQKBNR w KQkq e6 0 2", session.getView().toFen());
+        }
+    }
+
+    @Test
+    void recoversAMatchUpToAGapInItsMoves() throws Exception {
+        MatchCache cache = new MatchCache(Long.MAX_VALUE);
+        try (MatchJournal journal = new MatchJournal(directory)) {
+            MatchSession first = new MatchSession(1, new ChessMatch(), 0, journal, cache);
+            MatchSession second = new MatchSession(2, new ChessMatch(), 0, journal, cache);
+            journal.appendNew(1, "");
+            journal.appendNew(2, "");
+            play(journal, first, 1, MoveList.move(52, 36, 0));
+            journal.appendMove(2, 2, MoveList.move(52, 36, 0));
+            play(journal, second, 1, MoveList.move(51, 35, 0));
+            journal.sync();
+        }
+
+        try (MatchJournal journal = new MatchJournal(directory)) {
+            Map<Integer, MatchSession> sessions = journal.recover(cache);
+            assertEquals("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1", sessions.get(1).getView().toFen());
+            assertEquals("rnbqkbnr/pppppppp/8/8/3P4/8/PPP1PPPP/RNBQKBNR b KQkq d3 0 1", sessions.get(2).getView().toFen());
+        }
+    }
+
+    @Test
+    void closedMatchesStayClosed() throws Exception {
+        try (MatchServer server = new MatchServer(0, directory)) {
+            server.execute("NEW");
+            server.execute("NEW");
+            play(server, 2, "e2e4");
+            assertEquals("OK", server.execute("CLOSE 1"));
+            server.checkpoint();
+            assertEquals("OK", server.execute("CLOSE 2"));
+        }
+        try (MatchServer recovered = new MatchServer(0, directory)) {
+            assertEquals(0, recovered.getMatchCount());
+            assertEquals("OK 3", recovered.execute("NEW"));
+        }
+    }
+
+    private static boolean blockedOn(Thread thread, Object monitor) {
+        ThreadInfo info = ManagementFactory.getThreadMXBean().getThreadInfo(thread.getId());
+        return info != null && info.getThreadState() == Thread.State.BLOCKED
+                && info.getLockInfo().getIdentityHashCode() == System.identityHashCode(monitor);
+    }
+
+    private static void play(MatchServer server, int id, String... moves) {
+        for (String move : moves) {
+            assertTrue(server.execute("MOVE " + id + " " + move).startsWith("OK"), move);
+        }
+    }
+
+    private static void play(MatchJournal journal, MatchSession session, long sequence, int move) throws Exception {
+        journal.appendMove(session.getId(), sequence, move);
+        session.replay(move);
+        journal.sync();
+    }
+}